@@ -0,0 +1,30 @@
+package com.example.minecraftplugin;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Runs the JMH benchmarks and always writes the results as JSON
+ * (target/jmh-result.json unless -rff is given), so runs of different commits can be compared.
+ * Any other JMH command line option is passed through, e.g. "-p action=REMOVE_FRAME ChunkScan".
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .resultFormat(ResultFormatType.JSON)
+            .result(commandLine.getResult().orElse("target/jmh-result.json"))
+            .build();
+        new Runner(options).run();
+    }
+}
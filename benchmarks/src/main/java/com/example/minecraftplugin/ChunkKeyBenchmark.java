@@ -0,0 +1,98 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking chunks up in the processed-chunk cache, against the string-keyed set it replaced.
+ * Runs without a mock server: only the key handling is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkKeyBenchmark {
+
+    // Number of chunks in the recently processed set
+    @Param({"1000", "100000"})
+    public int processedChunks;
+
+    private final Set<String> recentlyProcessedChunks = new HashSet<>();
+    private TimedKeyTable processedChunkTable;
+    private int[] chunkXs;
+    private int[] chunkZs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        chunkXs = new int[processedChunks * 2];
+        chunkZs = new int[processedChunks * 2];
+        for (int i = 0; i < chunkXs.length; i++) {
+            chunkXs[i] = random.nextInt(4000) - 2000;
+            chunkZs[i] = random.nextInt(4000) - 2000;
+        }
+
+        // Only the first half is in the sets, so lookups are about half hits and half misses
+        processedChunkTable = new TimedKeyTable(processedChunks, 1024, false);
+        for (int i = 0; i < processedChunks; i++) {
+            recentlyProcessedChunks.add(stringKey(chunkXs[i], chunkZs[i], "world_the_end"));
+            processedChunkTable.schedule(Chunk.getChunkKey(chunkXs[i], chunkZs[i]), null, 300);
+        }
+    }
+
+    /**
+     * The "x:z:world" key of the former HashSet<String> cache
+     */
+    private static String stringKey(int chunkX, int chunkZ, String worldName) {
+        return chunkX + ":" + chunkZ + ":" + worldName;
+    }
+
+    @Benchmark
+    public String buildStringKey() {
+        int i = nextIndex();
+        return stringKey(chunkXs[i], chunkZs[i], "world_the_end");
+    }
+
+    @Benchmark
+    public boolean lookupStringKey() {
+        int i = nextIndex();
+        return recentlyProcessedChunks.contains(stringKey(chunkXs[i], chunkZs[i], "world_the_end"));
+    }
+
+    @Benchmark
+    public boolean lookupPrimitiveKey() {
+        int i = nextIndex();
+        return processedChunkTable.contains(Chunk.getChunkKey(chunkXs[i], chunkZs[i]));
+    }
+
+    @Benchmark
+    public long packLongKey() {
+        int i = nextIndex();
+        return Chunk.getChunkKey(chunkXs[i], chunkZs[i]);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % chunkXs.length;
+        return i;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ElytraRemoverPlugin#scanChunkForEndShips} over a populated End, per chunk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkScanBenchmark {
+
+    @Param({"16"})
+    public int chunkRadius;
+
+    // A few item frames per End city chunk, most chunks empty
+    @Param({"0.05", "0.5", "4"})
+    public double framesPerChunk;
+
+    @Param({"0.02"})
+    public double boatsPerChunk;
+
+    private MockEndServer end;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        end = new MockEndServer(chunkRadius, framesPerChunk, boatsPerChunk, 0.25, 42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        end.stop();
+    }
+
+    /**
+     * A chunk that was never scanned: cache miss, ledger miss, frames and boats inspected
+     */
+    @Benchmark
+    public void scanUnscannedChunk() {
+        Chunk chunk = nextChunk();
+        end.plugin.clearRecentlyProcessedChunks();
+        end.plugin.getCleanedChunkLedger().invalidate(chunk);
+        end.plugin.scanChunkForEndShips(chunk);
+        // Apply the removals the scan queued, as the next tick would
+        end.plugin.getRemovalPipeline().run();
+    }
+
+    /**
+     * A chunk scanned before the processed-chunk cache was cleared: only the ledger lookup
+     */
+    @Benchmark
+    public void scanLedgerCleanChunk() {
+        Chunk chunk = nextChunk();
+        end.plugin.clearRecentlyProcessedChunks();
+        end.plugin.getCleanedChunkLedger().markClean(chunk);
+        end.plugin.scanChunkForEndShips(chunk);
+    }
+
+    /**
+     * A chunk in the processed-chunk cache: only the key building and lookup
+     */
+    @Benchmark
+    public void scanRecentlyProcessedChunk() {
+        end.plugin.scanChunkForEndShips(nextChunk());
+    }
+
+    @TearDown(Level.Iteration)
+    public void restore() {
+        end.restoreElytras();
+    }
+
+    private Chunk nextChunk() {
+        Chunk chunk = end.chunks.get(next);
+        next = (next + 1) % end.chunks.size();
+        return chunk;
+    }
+}
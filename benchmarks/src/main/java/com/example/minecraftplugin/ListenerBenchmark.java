@@ -0,0 +1,98 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.hanging.HangingPlaceEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link ElytraFrameListener} event handlers, called directly with prebuilt events
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBenchmark {
+
+    private MockEndServer end;
+    private ElytraFrameListener listener;
+    private PlayerMock elytraPlayer;
+    private PlayerMock emptyHandedPlayer;
+    private ItemFrame frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        end = new MockEndServer(2, 1, 0, 0.0, 42L);
+        listener = new ElytraFrameListener(end.plugin);
+
+        elytraPlayer = end.server.addPlayer();
+        elytraPlayer.teleport(end.spawnLocation());
+        elytraPlayer.getInventory().setItemInMainHand(new ItemStack(Material.ELYTRA));
+
+        emptyHandedPlayer = end.server.addPlayer();
+        emptyHandedPlayer.teleport(end.spawnLocation());
+
+        frame = end.frames.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        end.stop();
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainScheduler() {
+        // Run the delayed checks scheduled by the spawn handler, so they don't pile up
+        end.server.getScheduler().performTicks(10L);
+    }
+
+    @Benchmark
+    public PlayerInteractEntityEvent interactWithElytra() {
+        PlayerInteractEntityEvent event = new PlayerInteractEntityEvent(elytraPlayer, frame);
+        listener.onPlayerInteractEntity(event);
+        return event;
+    }
+
+    @Benchmark
+    public PlayerInteractEntityEvent interactEmptyHanded() {
+        PlayerInteractEntityEvent event = new PlayerInteractEntityEvent(emptyHandedPlayer, frame);
+        listener.onPlayerInteractEntity(event);
+        return event;
+    }
+
+    @Benchmark
+    public HangingPlaceEvent placeFrameWithElytra() {
+        HangingPlaceEvent event = new HangingPlaceEvent(frame, elytraPlayer, frame.getLocation().getBlock(),
+                                                        BlockFace.NORTH, EquipmentSlot.HAND, new ItemStack(Material.ITEM_FRAME));
+        listener.onHangingPlace(event);
+        return event;
+    }
+
+    @Benchmark
+    public EntitySpawnEvent spawnFrame() {
+        EntitySpawnEvent event = new EntitySpawnEvent(frame);
+        listener.onEntitySpawn(event);
+        return event;
+    }
+}
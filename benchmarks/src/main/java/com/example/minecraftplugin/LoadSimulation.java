@@ -0,0 +1,341 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.inventory.ItemStack;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Macro load test: boots the plugin (with its {@link ElytraFrameListener}) on the mock server, populates a large
+ * End and replays chunk load storms, item frame spawn bursts and player click storms, tick by tick.
+ * The cost of every tick, of the event handlers and of each scheduled task is recorded per tick, and the run
+ * fails (exit code 1) if a percentile or the worst tick goes over its budget:
+ * {@code java -cp target/benchmarks.jar com.example.minecraftplugin.LoadSimulation [options]}
+ */
+public final class LoadSimulation {
+
+    /**
+     * Per-tick costs of one code path, in nanoseconds
+     */
+    private static final class Samples {
+        private long[] values = new long[256];
+        private int count;
+
+        void add(long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+        }
+
+        long percentile(double percentile) {
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(count * percentile / 100.0) - 1)];
+        }
+
+        long max() {
+            long max = 0;
+            for (int i = 0; i < count; i++) {
+                max = Math.max(max, values[i]);
+            }
+            return max;
+        }
+    }
+
+    private static final String TICK = "tick";
+    private static final String EVENTS = "event handlers";
+
+    // Ticks after each storm, so the checks it queued are worked off while measuring
+    private static final int SETTLE_TICKS = 100;
+
+    // Settings
+    private int chunkRadius = 24;
+    private double framesPerChunk = 2;
+    private double boatsPerChunk = 0.05;
+    private double elytraRatio = 0.1;
+    private long seed = 42L;
+    private String scenario = "all";
+    private int stormTicks = 200;
+    private int chunkLoadsPerTick = 64;
+    private int spawnsPerTick = 16;
+    private int clicksPerTick = 100;
+    private double percentile = 99.0;
+    private double tickPercentileBudgetMillis = 5.0;
+    private double tickMaxBudgetMillis = 25.0;
+    private double taskPercentileBudgetMillis = 2.0;
+    private double taskMaxBudgetMillis = 10.0;
+    private int playerCount = 20;
+
+    private MockEndServer end;
+    private TimedTaskDispatcher dispatcher;
+    private Random random;
+    private final List<PlayerMock> players = new ArrayList<>();
+    private int chunkCursor;
+
+    private LoadSimulation() {
+    }
+
+    public static void main(String[] args) {
+        LoadSimulation simulation = new LoadSimulation();
+        Map<String, IntConsumer> scenarios;
+        try {
+            simulation.parse(args);
+            scenarios = simulation.scenarios();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            printUsage();
+            System.exit(1);
+            return;
+        }
+
+        int failures;
+        simulation.boot();
+        try {
+            failures = simulation.run(scenarios);
+        } finally {
+            simulation.end.stop();
+        }
+        System.out.println(failures == 0 ? "All tick budgets met" : failures + " tick budgets exceeded");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenario":
+                    scenario = args[++i];
+                    break;
+                case "--radius":
+                    chunkRadius = Integer.parseInt(args[++i]);
+                    break;
+                case "--frames":
+                    framesPerChunk = Double.parseDouble(args[++i]);
+                    break;
+                case "--boats":
+                    boatsPerChunk = Double.parseDouble(args[++i]);
+                    break;
+                case "--elytra-ratio":
+                    elytraRatio = Double.parseDouble(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--ticks":
+                    stormTicks = Integer.parseInt(args[++i]);
+                    break;
+                case "--chunk-loads":
+                    chunkLoadsPerTick = Integer.parseInt(args[++i]);
+                    break;
+                case "--spawns":
+                    spawnsPerTick = Integer.parseInt(args[++i]);
+                    break;
+                case "--clicks":
+                    clicksPerTick = Integer.parseInt(args[++i]);
+                    break;
+                case "--players":
+                    playerCount = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "--percentile":
+                    percentile = Double.parseDouble(args[++i]);
+                    break;
+                case "--tick-budget-ms":
+                    tickPercentileBudgetMillis = Double.parseDouble(args[++i]);
+                    break;
+                case "--tick-max-ms":
+                    tickMaxBudgetMillis = Double.parseDouble(args[++i]);
+                    break;
+                case "--task-budget-ms":
+                    taskPercentileBudgetMillis = Double.parseDouble(args[++i]);
+                    break;
+                case "--task-max-ms":
+                    taskMaxBudgetMillis = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the storms to replay, by name
+     */
+    private Map<String, IntConsumer> scenarios() {
+        Map<String, IntConsumer> scenarios = new LinkedHashMap<>();
+        scenarios.put("chunk-load", this::chunkLoadStorm);
+        scenarios.put("spawn", this::spawnBurst);
+        scenarios.put("click", this::clickStorm);
+        if (!scenario.equals("all")) {
+            if (!scenarios.containsKey(scenario)) {
+                throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected one of " + scenarios.keySet() + " or all");
+            }
+            scenarios.keySet().retainAll(List.of(scenario));
+        }
+        return scenarios;
+    }
+
+    /**
+     * Starts the mock server with every tick task of the plugin timed, and populates the End
+     */
+    private void boot() {
+        end = new MockEndServer(TimedElytraRemoverPlugin.class, chunkRadius, framesPerChunk, boatsPerChunk, elytraRatio, seed);
+        dispatcher = (TimedTaskDispatcher) end.plugin.getTaskDispatcher();
+        random = new Random(seed);
+
+        for (int i = 0; i < playerCount; i++) {
+            PlayerMock player = end.server.addPlayer();
+            player.teleport(end.spawnLocation());
+            player.getInventory().setItemInMainHand(new ItemStack(Material.ELYTRA));
+            players.add(player);
+        }
+        System.out.println("Populated " + end.chunks.size() + " End chunks with " + end.frames.size() + " item frames (" +
+                           end.elytraFrames.size() + " holding an elytra) and " + playerCount + " players");
+    }
+
+    /**
+     * Runs every scenario once unmeasured to warm up the JIT, then once measured
+     * @return the number of budgets exceeded
+     */
+    private int run(Map<String, IntConsumer> scenarios) {
+        for (IntConsumer scenario : scenarios.values()) {
+            simulate(scenario);
+        }
+        int failures = 0;
+        for (Map.Entry<String, IntConsumer> scenario : scenarios.entrySet()) {
+            failures += report(scenario.getKey(), simulate(scenario.getValue()));
+        }
+        return failures;
+    }
+
+    /**
+     * Replays a storm for the configured number of ticks, then lets the queued work settle
+     * @return per-tick costs by code path
+     */
+    private Map<String, Samples> simulate(IntConsumer storm) {
+        end.restoreElytras();
+        end.resetScanState();
+        dispatcher.drainTick();
+
+        Map<String, Samples> samples = new LinkedHashMap<>();
+        for (int tick = 0; tick < stormTicks + SETTLE_TICKS; tick++) {
+            long start = System.nanoTime();
+            if (tick < stormTicks) {
+                storm.accept(tick);
+            }
+            long events = System.nanoTime();
+            end.server.getScheduler().performOneTick();
+            long finish = System.nanoTime();
+
+            samples.computeIfAbsent(TICK, name -> new Samples()).add(finish - start);
+            samples.computeIfAbsent(EVENTS, name -> new Samples()).add(events - start);
+            for (Map.Entry<String, Long> task : dispatcher.drainTick().entrySet()) {
+                samples.computeIfAbsent(task.getKey(), name -> new Samples()).add(task.getValue());
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Chunks loading in bulk, e.g. players flying through the outer End
+     */
+    private void chunkLoadStorm(int tick) {
+        for (int i = 0; i < chunkLoadsPerTick; i++) {
+            Chunk chunk = end.chunks.get(chunkCursor++ % end.chunks.size());
+            end.server.getPluginManager().callEvent(new ChunkLoadEvent(chunk, false));
+        }
+    }
+
+    /**
+     * Item frames holding elytras appearing in bulk, e.g. End Cities generating
+     */
+    private void spawnBurst(int tick) {
+        for (int i = 0; i < spawnsPerTick; i++) {
+            Chunk chunk = end.chunks.get(random.nextInt(end.chunks.size()));
+            Location location = new Location(end.world, (chunk.getX() << 4) + random.nextInt(16) + 0.5,
+                                             60 + random.nextInt(40), (chunk.getZ() << 4) + random.nextInt(16) + 0.5);
+            ItemFrame frame = end.world.spawn(location, ItemFrame.class);
+            frame.setItem(new ItemStack(Material.ELYTRA));
+            // The mock server does not fire Paper's entity add events
+            end.plugin.getItemFrameRegistry().add(frame);
+            end.server.getPluginManager().callEvent(new EntitySpawnEvent(frame));
+        }
+    }
+
+    /**
+     * Players holding elytras clicking item frames over and over
+     */
+    private void clickStorm(int tick) {
+        for (int i = 0; i < clicksPerTick; i++) {
+            PlayerMock player = players.get(random.nextInt(players.size()));
+            ItemFrame frame = end.frames.get(random.nextInt(end.frames.size()));
+            if (frame.isValid()) {
+                end.server.getPluginManager().callEvent(new PlayerInteractEntityEvent(player, frame));
+            }
+        }
+    }
+
+    /**
+     * Prints the per-tick costs of a scenario and checks them against the budgets
+     * @return the number of budgets exceeded
+     */
+    private int report(String scenario, Map<String, Samples> samples) {
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "Scenario %s (%d ticks, p%s / max budgets: tick %.1f / %.1f ms, task %.1f / %.1f ms)",
+            scenario, stormTicks + SETTLE_TICKS, formatPercentile(), tickPercentileBudgetMillis, tickMaxBudgetMillis,
+            taskPercentileBudgetMillis, taskMaxBudgetMillis));
+        System.out.println(String.format(Locale.ROOT, "  %-48s %6s %9s %9s %9s", "path", "ticks", "p50 ms", "p" + formatPercentile() + " ms", "max ms"));
+
+        int failures = 0;
+        for (Map.Entry<String, Samples> entry : samples.entrySet()) {
+            Samples path = entry.getValue();
+            boolean wholeTick = entry.getKey().equals(TICK);
+            double percentileMillis = path.percentile(percentile) / 1e6;
+            double maxMillis = path.max() / 1e6;
+            boolean overPercentile = percentileMillis > (wholeTick ? tickPercentileBudgetMillis : taskPercentileBudgetMillis);
+            boolean overMax = maxMillis > (wholeTick ? tickMaxBudgetMillis : taskMaxBudgetMillis);
+            System.out.println(String.format(Locale.ROOT, "  %-48s %6d %9.3f %9.3f %9.3f%s", entry.getKey(), path.count,
+                path.percentile(50) / 1e6, percentileMillis, maxMillis,
+                overPercentile || overMax ? "  OVER BUDGET (" + (overPercentile ? "p" + formatPercentile() : "max") + ")" : ""));
+            failures += (overPercentile ? 1 : 0) + (overMax ? 1 : 0);
+        }
+        return failures;
+    }
+
+    private String formatPercentile() {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java -cp target/benchmarks.jar com.example.minecraftplugin.LoadSimulation [options]");
+        System.err.println("  --scenario <name>       chunk-load, spawn, click or all (default)");
+        System.err.println("  --radius <chunks>       End populated from -radius to +radius chunks (default 24)");
+        System.err.println("  --frames <n>            average item frames per chunk (default 2)");
+        System.err.println("  --boats <n>             average boats per chunk (default 0.05)");
+        System.err.println("  --elytra-ratio <r>      share of the item frames holding an elytra (default 0.1)");
+        System.err.println("  --seed <n>              seed of the layout and the storms (default 42)");
+        System.err.println("  --ticks <n>             length of each storm in ticks (default 200)");
+        System.err.println("  --chunk-loads <n>       chunk loads per tick (default 64)");
+        System.err.println("  --spawns <n>            item frames spawned per tick (default 16)");
+        System.err.println("  --clicks <n>            item frame clicks per tick (default 100)");
+        System.err.println("  --players <n>           players taking part in the click storm (default 20)");
+        System.err.println("  --percentile <p>        percentile checked against the budgets (default 99)");
+        System.err.println("  --tick-budget-ms <ms>   budget of the percentile for the whole tick (default 5)");
+        System.err.println("  --tick-max-ms <ms>      budget of the worst tick (default 25)");
+        System.err.println("  --task-budget-ms <ms>   budget of the percentile for each task and the event handlers (default 2)");
+        System.err.println("  --task-max-ms <ms>      budget of the worst tick of each task and the event handlers (default 10)");
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Boat;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-process mock server with the plugin enabled and an End world populated with item frames,
+ * elytras and boats at a configurable density. Shared by every benchmark.
+ */
+final class MockEndServer {
+
+    // Items shown in the frames that don't hold an elytra
+    private static final Material[] OTHER_ITEMS = { Material.AIR, Material.APPLE, Material.DIAMOND_SWORD, Material.PURPUR_BLOCK };
+
+    final ServerMock server;
+    final ElytraRemoverPlugin plugin;
+    final World world;
+    final List<Chunk> chunks = new ArrayList<>();
+    final List<ItemFrame> frames = new ArrayList<>();
+    final List<ItemFrame> elytraFrames = new ArrayList<>();
+
+    private final Random random;
+
+    /**
+     * @param chunkRadius The End is populated from -radius to +radius chunks on both axes
+     * @param framesPerChunk Average number of item frames per chunk
+     * @param boatsPerChunk Average number of boats per chunk
+     * @param elytraRatio Share of the item frames that hold an elytra
+     * @param seed Seed of the layout, so runs are reproducible
+     */
+    MockEndServer(int chunkRadius, double framesPerChunk, double boatsPerChunk, double elytraRatio, long seed) {
+        this(ElytraRemoverPlugin.class, chunkRadius, framesPerChunk, boatsPerChunk, elytraRatio, seed);
+    }
+
+    /**
+     * @param pluginClass The plugin, or a subclass of it instrumented for a benchmark
+     */
+    MockEndServer(Class<? extends ElytraRemoverPlugin> pluginClass, int chunkRadius, double framesPerChunk, double boatsPerChunk,
+                  double elytraRatio, long seed) {
+        this.random = new Random(seed);
+        this.server = MockBukkit.mock();
+        this.world = server.createWorld(new WorldCreator("world_the_end").environment(Environment.THE_END));
+        // A subclass is not the main class of plugin.yml, so the description is passed explicitly
+        this.plugin = MockBukkit.loadWith(pluginClass, pluginDescription());
+
+        for (int chunkX = -chunkRadius; chunkX <= chunkRadius; chunkX++) {
+            for (int chunkZ = -chunkRadius; chunkZ <= chunkRadius; chunkZ++) {
+                Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+                chunks.add(chunk);
+
+                for (int i = sample(framesPerChunk); i > 0; i--) {
+                    ItemFrame frame = world.spawn(randomLocation(chunkX, chunkZ), ItemFrame.class);
+                    frames.add(frame);
+                    if (random.nextDouble() < elytraRatio) {
+                        frame.setItem(new ItemStack(Material.ELYTRA));
+                        elytraFrames.add(frame);
+                    } else {
+                        frame.setItem(new ItemStack(OTHER_ITEMS[random.nextInt(OTHER_ITEMS.length)]));
+                    }
+                }
+
+                for (int i = sample(boatsPerChunk); i > 0; i--) {
+                    world.spawn(randomLocation(chunkX, chunkZ), Boat.class);
+                }
+            }
+        }
+
+        // The mock server does not fire Paper's entity add events, so index the frames and boats directly
+        plugin.getItemFrameRegistry().addAll(world.getEntities());
+        plugin.getBoatGrid().addAll(world.getEntities());
+    }
+
+    private static PluginDescriptionFile pluginDescription() {
+        try (InputStream in = ElytraRemoverPlugin.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+            return new PluginDescriptionFile(in);
+        } catch (IOException | InvalidDescriptionException e) {
+            throw new IllegalStateException("Could not read plugin.yml", e);
+        }
+    }
+
+    /**
+     * Puts the elytras back in every frame that had one, respawning frames that were removed
+     */
+    void restoreElytras() {
+        for (int i = 0; i < elytraFrames.size(); i++) {
+            ItemFrame frame = elytraFrames.get(i);
+            if (!frame.isValid()) {
+                frame = world.spawn(frame.getLocation(), ItemFrame.class);
+                plugin.getItemFrameRegistry().add(frame);
+                elytraFrames.set(i, frame);
+            }
+            frame.setItem(new ItemStack(Material.ELYTRA));
+        }
+    }
+
+    /**
+     * Makes every chunk look unscanned again, and every frame unseen by the removal pipeline
+     */
+    void resetScanState() {
+        plugin.clearRecentlyProcessedChunks();
+        plugin.getRemovalPipeline().flush();
+        for (Chunk chunk : chunks) {
+            plugin.getCleanedChunkLedger().invalidate(chunk);
+        }
+    }
+
+    /**
+     * Switches the configured action and reloads the configuration
+     */
+    void setAction(ElytraAction action) {
+        plugin.getConfig().set("end-ship.action", action.name());
+        plugin.saveConfig();
+        plugin.loadConfiguration();
+    }
+
+    /**
+     * @return an End location, e.g. for players taking part in a benchmark
+     */
+    Location spawnLocation() {
+        return new Location(world, 0.5, 80, 0.5);
+    }
+
+    void stop() {
+        MockBukkit.unmock();
+    }
+
+    /**
+     * Draws a count with the given average: the integer part, plus one with the fractional probability
+     */
+    private int sample(double average) {
+        int count = (int) average;
+        return random.nextDouble() < average - count ? count + 1 : count;
+    }
+
+    private Location randomLocation(int chunkX, int chunkZ) {
+        return new Location(world,
+            (chunkX << 4) + random.nextInt(16) + 0.5,
+            60 + random.nextInt(40),
+            (chunkZ << 4) + random.nextInt(16) + 0.5);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wall-clock time of one full scan pass through {@link ScanScheduler} on the multi-threaded
+ * {@link LocalRegionDispatcher}, with one lane (serial) or several (regionized)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegionizedScanBenchmark {
+
+    @Param({"32"})
+    public int chunkRadius;
+
+    @Param({"1", "4"})
+    public int lanes;
+
+    private MockEndServer end;
+    private LocalRegionDispatcher dispatcher;
+    private ScanScheduler scheduler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        end = new MockEndServer(chunkRadius, 4, 0.02, 0.25, 42L);
+        dispatcher = new LocalRegionDispatcher(lanes);
+        // No time budget and no practical pass bound: the number of visits in flight is what paces the pass
+        scheduler = new ScanScheduler(end.plugin.getMetrics(), dispatcher, end.plugin.getRules()::appliesTo, Long.MAX_VALUE, 1_000_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.shutdown();
+        end.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        end.restoreElytras();
+        end.resetScanState();
+    }
+
+    @Benchmark
+    public int fullPass() throws Exception {
+        AtomicInteger visited = new AtomicInteger();
+        CountDownLatch complete = new CountDownLatch(1);
+        scheduler.submit("benchmark", world -> chunkKeys(), (world, chunkKey) -> {
+            end.plugin.scanChunkForEndShips(world.getChunkAt((int) chunkKey, (int) (chunkKey >> 32)));
+            visited.incrementAndGet();
+        }, complete::countDown);
+
+        // Tick the scheduler on the global lane until the pass completed
+        while (complete.getCount() > 0) {
+            dispatcher.runGlobalAndWait(scheduler);
+        }
+
+        if (visited.get() != end.chunks.size()) {
+            throw new IllegalStateException("Visited " + visited.get() + " of " + end.chunks.size() + " chunks");
+        }
+        return visited.get();
+    }
+
+    private long[] chunkKeys() {
+        long[] keys = new long[end.chunks.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = end.chunks.get(i).getChunkKey();
+        }
+        return keys;
+    }
+}
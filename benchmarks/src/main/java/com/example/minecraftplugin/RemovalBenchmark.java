@@ -0,0 +1,74 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Material;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ElytraRemoverPlugin#removeElytraFromFrame} for each {@link ElytraAction}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemovalBenchmark {
+
+    // A name rather than the enum, which is not public
+    @Param({"REMOVE_ELYTRA", "REMOVE_FRAME", "REPLACE_WITH_APPLE"})
+    public String action;
+
+    // Boats make REMOVE_FRAME take its "near a boat" branch for part of the frames
+    @Param({"0.5"})
+    public double boatsPerChunk;
+
+    private ElytraAction elytraAction;
+    private MockEndServer end;
+    private ItemFrame frame;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        elytraAction = ElytraAction.valueOf(action);
+        end = new MockEndServer(4, 2, boatsPerChunk, 1.0, 42L);
+        end.setAction(elytraAction);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        end.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareFrame() {
+        frame = end.elytraFrames.get(next);
+        if (!frame.isValid()) {
+            end.restoreElytras();
+            frame = end.elytraFrames.get(next);
+        } else {
+            frame.setItem(new ItemStack(Material.ELYTRA));
+        }
+        next = (next + 1) % end.elytraFrames.size();
+    }
+
+    @Benchmark
+    public void removeElytra() {
+        end.plugin.removeElytraFromFrame(frame, elytraAction, "benchmark");
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.minecraftplugin;
+
+/**
+ * The plugin with every tick task timed through a {@link TimedTaskDispatcher}, for the load simulation
+ */
+public class TimedElytraRemoverPlugin extends ElytraRemoverPlugin {
+
+    public TimedElytraRemoverPlugin() {
+        super(TimedTaskDispatcher::new);
+    }
+}
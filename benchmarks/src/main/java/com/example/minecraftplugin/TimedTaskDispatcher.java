@@ -0,0 +1,104 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link TaskDispatcher} decorator that times every tick task and adds the time up per task for the
+ * current tick. Tasks are named after their class, or after the line that scheduled them for lambdas.
+ * Async tasks are passed through untimed, since they don't cost tick time. Only meant for the mock
+ * server, where every tick task runs on the thread that calls {@link #drainTick()}.
+ */
+final class TimedTaskDispatcher implements TaskDispatcher {
+
+    private final TaskDispatcher delegate;
+
+    // Nanoseconds spent per task during the current tick
+    private final Map<String, Long> tickNanos = new LinkedHashMap<>();
+
+    TimedTaskDispatcher(TaskDispatcher delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return the time spent per task since the previous call, in nanoseconds; tasks that did not run are left out
+     */
+    Map<String, Long> drainTick() {
+        Map<String, Long> tick = new LinkedHashMap<>(tickNanos);
+        tickNanos.clear();
+        return tick;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return delegate.isRegionized();
+    }
+
+    @Override
+    public TaskHandle runGlobalLater(Runnable task, long delayTicks) {
+        return delegate.runGlobalLater(timed(task), delayTicks);
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return delegate.runGlobalTimer(timed(task), delayTicks, periodTicks);
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        delegate.runAtChunk(world, chunkX, chunkZ, timed(task));
+    }
+
+    @Override
+    public TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks) {
+        return delegate.runAtChunkLater(world, chunkX, chunkZ, timed(task), delayTicks);
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        delegate.runAtEntityLater(entity, timed(task), delayTicks);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        delegate.runAsync(task);
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return delegate.runAsyncTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return delegate.isOwnedByCurrentThread(entity);
+    }
+
+    private Runnable timed(Runnable task) {
+        String name = nameOf(task);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                tickNanos.merge(name, System.nanoTime() - start, Long::sum);
+            }
+        };
+    }
+
+    private static String nameOf(Runnable task) {
+        if (!task.getClass().isSynthetic()) {
+            return task.getClass().getSimpleName();
+        }
+        // Lambdas and method references: the first caller outside this class
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> !frame.getClassName().equals(TimedTaskDispatcher.class.getName()))
+            .findFirst()
+            .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." +
+                          frame.getMethodName() + ":" + frame.getLineNumber())
+            .orElse("unknown"));
+    }
+}
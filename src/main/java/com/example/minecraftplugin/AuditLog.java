@@ -0,0 +1,270 @@
+package com.example.minecraftplugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Audit trail of removals and prevented placements.
+ * Events are recorded as plain fields into a preallocated lock-free ring buffer, so recording costs
+ * the server thread a few field writes. A background writer drains the buffer once a second, appends
+ * the events in batches to a rotating CSV file and, only when debug is enabled, builds and logs the
+ * console messages.
+ */
+public class AuditLog {
+
+    /**
+     * Kinds of audited events
+     */
+    public enum Type {
+        REMOVED_ELYTRA,
+        REMOVED_FRAME,
+        REPLACED_ELYTRA,
+        PREVENTED_INTERACT,
+        PREVENTED_HANGING_PLACE,
+        PREVENTED_REPEATED // further attempts of a player within the notification cooldown, summarized
+    }
+
+    /**
+     * Preallocated ring buffer slot. {@code sequence} is written last and publishes the other fields.
+     */
+    private static final class Slot {
+        long time;
+        Type type;
+        String world;
+        int x;
+        int y;
+        int z;
+        String detail;
+        volatile long sequence = -1L;
+    }
+
+    private static final String CSV_HEADER = "time,type,world,x,y,z,detail";
+
+    private final Logger logger;
+    private final File folder;
+    private final Slot[] slots;
+    private final int mask;
+
+    // Next sequence to claim (producers) and next sequence to drain (writer only)
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean enabled = true;
+    private volatile boolean debug;
+    private volatile long maxFileBytes = 10L * 1024 * 1024;
+    private volatile int maxFiles = 5;
+    private volatile String removedMessage = "Removed an elytra from an item frame at location: {location}";
+    private volatile String preventedMessage = "Prevented {player} from placing an elytra in an item frame in The End";
+
+    private ScheduledExecutorService writer;
+
+    /**
+     * @param logger Logger the console messages go to
+     * @param folder Folder the audit files are written to
+     * @param capacity Number of events the buffer holds, rounded up to a power of two
+     */
+    public AuditLog(Logger logger, File folder, int capacity) {
+        this.logger = logger;
+        this.folder = folder;
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Updates the audit settings
+     * @param enabled Whether events are written to the audit file
+     * @param debug Whether events are also logged to the console
+     * @param maxFileBytes Size at which the audit file is rotated
+     * @param maxFiles Number of rotated files to keep
+     * @param removedMessage Console message for removals, {location} is replaced
+     * @param preventedMessage Console message for prevented placements, {player} is replaced
+     */
+    public void configure(boolean enabled, boolean debug, long maxFileBytes, int maxFiles,
+                          String removedMessage, String preventedMessage) {
+        this.enabled = enabled;
+        this.debug = debug;
+        this.maxFileBytes = Math.max(1024L, maxFileBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.removedMessage = removedMessage;
+        this.preventedMessage = preventedMessage;
+    }
+
+    /**
+     * Starts the background writer
+     */
+    public void start() {
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ElytraRemover-Audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::drain, 1L, 1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background writer and flushes what is left in the buffer
+     */
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        writer = null;
+    }
+
+    /**
+     * Records an event. Never blocks: if the buffer is full the event is dropped and counted.
+     * @param type The kind of event
+     * @param world Name of the world it happened in
+     * @param x Block X
+     * @param y Block Y
+     * @param z Block Z
+     * @param detail Player name or scan source, may be null
+     */
+    public void record(Type type, String world, int x, int y, int z, String detail) {
+        if (!enabled && !debug) {
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.time = System.currentTimeMillis();
+        slot.type = type;
+        slot.world = world;
+        slot.x = x;
+        slot.y = y;
+        slot.z = z;
+        slot.detail = detail;
+        slot.sequence = sequence;
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes every published event to the audit file in one batch
+     */
+    private synchronized void drain() {
+        if (slots[(int) (tail & mask)].sequence != tail) {
+            return;
+        }
+
+        StringBuilder batch = new StringBuilder(4096);
+        long next = tail;
+        Slot slot;
+        while ((slot = slots[(int) (next & mask)]).sequence == next) {
+            if (enabled) {
+                batch.append(Instant.ofEpochMilli(slot.time)).append(',')
+                     .append(slot.type).append(',')
+                     .append(slot.world).append(',')
+                     .append(slot.x).append(',')
+                     .append(slot.y).append(',')
+                     .append(slot.z).append(',')
+                     .append(slot.detail == null ? "" : slot.detail.replace(',', ' ')).append('\n');
+            }
+            if (debug) {
+                logger.info(formatMessage(slot));
+            }
+            next++;
+            // Hand the slot back to the producers
+            tail = next;
+        }
+
+        long droppedEvents = dropped.sumThenReset();
+        if (droppedEvents > 0) {
+            logger.warning("Audit buffer full, dropped " + droppedEvents + " events");
+        }
+
+        if (batch.length() > 0) {
+            write(batch);
+        }
+    }
+
+    private String formatMessage(Slot slot) {
+        switch (slot.type) {
+            case PREVENTED_INTERACT:
+            case PREVENTED_HANGING_PLACE:
+                return preventedMessage.replace("{player}", String.valueOf(slot.detail)) + " (" + slot.type + ")";
+            case PREVENTED_REPEATED:
+                return "Blocked repeated attempts without further messages: " + slot.detail + " near " +
+                       slot.x + ", " + slot.y + ", " + slot.z + " in " + slot.world;
+            default:
+                return removedMessage.replace("{location}", slot.x + ", " + slot.y + ", " + slot.z + " in " + slot.world) +
+                       " (" + slot.type + ", " + slot.detail + ")";
+        }
+    }
+
+    private void write(CharSequence batch) {
+        try {
+            Files.createDirectories(folder.toPath());
+            File file = new File(folder, "audit.csv");
+            if (file.length() >= maxFileBytes) {
+                rotate();
+            }
+
+            boolean newFile = !file.exists();
+            try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (newFile) {
+                    out.write(CSV_HEADER);
+                    out.newLine();
+                }
+                out.append(batch);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write audit log", e);
+        }
+    }
+
+    /**
+     * Shifts audit.csv to audit.1.csv, audit.1.csv to audit.2.csv and so on, dropping the oldest
+     */
+    private void rotate() throws IOException {
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File source = new File(folder, i == 1 ? "audit.csv" : "audit." + (i - 1) + ".csv");
+            if (source.exists()) {
+                Files.move(source.toPath(), new File(folder, "audit." + i + ".csv").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles == 1) {
+            Files.deleteIfExists(new File(folder, "audit.csv").toPath());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Boat;
+import org.bukkit.entity.Entity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial grid of boat positions in the worlds the rules apply to, one column per chunk.
+ * It is maintained incrementally by {@link EntityIndexListener}, so "is this frame near a boat"
+ * is answered by comparing a few primitive coordinates of the surrounding columns instead of
+ * asking the server for nearby entities.
+ */
+public class BoatGrid {
+
+    /**
+     * Boats of one chunk column, stored as parallel primitive arrays
+     */
+    private static final class BoatColumn {
+        private int[] ids = new int[2];
+        private double[] coordinates = new double[6];
+        private int size;
+
+        synchronized void put(int id, double x, double y, double z) {
+            int index = indexOf(id);
+            if (index < 0) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    coordinates = Arrays.copyOf(coordinates, size * 6);
+                }
+                index = size++;
+                ids[index] = id;
+            }
+            coordinates[index * 3] = x;
+            coordinates[index * 3 + 1] = y;
+            coordinates[index * 3 + 2] = z;
+        }
+
+        synchronized boolean remove(int id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+            // Move the last boat into the freed slot
+            size--;
+            ids[index] = ids[size];
+            System.arraycopy(coordinates, size * 3, coordinates, index * 3, 3);
+            return true;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        synchronized boolean anyWithin(double x, double y, double z, double radius) {
+            for (int i = 0; i < size; i++) {
+                if (Math.abs(coordinates[i * 3] - x) <= radius &&
+                    Math.abs(coordinates[i * 3 + 1] - y) <= radius &&
+                    Math.abs(coordinates[i * 3 + 2] - z) <= radius) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int indexOf(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // World UID -> chunk key -> boats in that chunk column
+    private final Map<UUID, Map<Long, BoatColumn>> columns = new ConcurrentHashMap<>();
+
+    // World UID -> boat entity ID -> chunk key of the column it is stored in
+    private final Map<UUID, Map<Integer, Long>> boatColumns = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an entity to the grid if it is a boat
+     * @param entity The entity that was added to the world
+     */
+    public void add(Entity entity) {
+        if (entity instanceof Boat) {
+            move(entity, entity.getLocation());
+        }
+    }
+
+    /**
+     * Indexes every boat among some entities
+     * @param entities The entities of a chunk or world
+     */
+    public void addAll(Collection<? extends Entity> entities) {
+        for (Entity entity : entities) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Updates the position of a boat, moving it to another column if needed
+     * @param boat The boat
+     * @param to Its new location
+     */
+    public void move(Entity boat, Location to) {
+        UUID worldId = boat.getWorld().getUID();
+        long chunkKey = Chunk.getChunkKey(to.getBlockX() >> 4, to.getBlockZ() >> 4);
+        Long previousKey = boatColumns.computeIfAbsent(worldId, uid -> new ConcurrentHashMap<>()).put(boat.getEntityId(), chunkKey);
+
+        Map<Long, BoatColumn> worldColumns = columns.computeIfAbsent(worldId, uid -> new ConcurrentHashMap<>());
+        if (previousKey != null && previousKey != chunkKey) {
+            removeFromColumn(worldColumns, previousKey, boat.getEntityId());
+        }
+        worldColumns.computeIfAbsent(chunkKey, key -> new BoatColumn()).put(boat.getEntityId(), to.getX(), to.getY(), to.getZ());
+    }
+
+    /**
+     * Removes an entity from the grid
+     * @param entity The entity that was removed from the world
+     */
+    public void remove(Entity entity) {
+        if (!(entity instanceof Boat)) {
+            return;
+        }
+
+        UUID worldId = entity.getWorld().getUID();
+        Map<Integer, Long> worldBoats = boatColumns.get(worldId);
+        Long chunkKey = worldBoats == null ? null : worldBoats.remove(entity.getEntityId());
+        Map<Long, BoatColumn> worldColumns = columns.get(worldId);
+        if (chunkKey != null && worldColumns != null) {
+            removeFromColumn(worldColumns, chunkKey, entity.getEntityId());
+        }
+    }
+
+    /**
+     * Drops every boat of a chunk whose entities are unloading
+     * @param chunk The chunk being unloaded
+     */
+    public void removeChunk(Chunk chunk) {
+        Map<Long, BoatColumn> worldColumns = columns.get(chunk.getWorld().getUID());
+        if (worldColumns != null) {
+            worldColumns.remove(chunk.getChunkKey());
+        }
+        // Stale entries of boatColumns are harmless: they point at a column that no longer holds the boat
+    }
+
+    /**
+     * Drops every boat of a world
+     * @param world The world to forget
+     */
+    public void clearWorld(World world) {
+        columns.remove(world.getUID());
+        boatColumns.remove(world.getUID());
+    }
+
+    /**
+     * @param world The world to look up
+     * @param chunkKey The chunk key, as returned by {@link Chunk#getChunkKey()}
+     * @return true if at least one boat is in that chunk
+     */
+    public boolean hasBoats(World world, long chunkKey) {
+        Map<Long, BoatColumn> worldColumns = columns.get(world.getUID());
+        return worldColumns != null && worldColumns.containsKey(chunkKey);
+    }
+
+    /**
+     * Same box test as {@code getNearbyEntities(radius, radius, radius)}, restricted to boats
+     * @param world The world to look in
+     * @param x X coordinate of the center
+     * @param y Y coordinate of the center
+     * @param z Z coordinate of the center
+     * @param radius Half size of the box, at most 16 blocks
+     * @return true if any boat is within the box
+     */
+    public boolean isNearBoat(World world, double x, double y, double z, double radius) {
+        Map<Long, BoatColumn> worldColumns = columns.get(world.getUID());
+        if (worldColumns == null || worldColumns.isEmpty()) {
+            return false;
+        }
+
+        int minChunkX = (int) Math.floor(x - radius) >> 4;
+        int maxChunkX = (int) Math.floor(x + radius) >> 4;
+        int minChunkZ = (int) Math.floor(z - radius) >> 4;
+        int maxChunkZ = (int) Math.floor(z + radius) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                BoatColumn column = worldColumns.get(Chunk.getChunkKey(chunkX, chunkZ));
+                if (column != null && column.anyWithin(x, y, z, radius)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Like {@link #isNearBoat}, but only considers the boats of one chunk
+     */
+    public boolean isNearBoatInChunk(World world, long chunkKey, double x, double y, double z, double radius) {
+        Map<Long, BoatColumn> worldColumns = columns.get(world.getUID());
+        BoatColumn column = worldColumns == null ? null : worldColumns.get(chunkKey);
+        return column != null && column.anyWithin(x, y, z, radius);
+    }
+
+    private static void removeFromColumn(Map<Long, BoatColumn> worldColumns, long chunkKey, int id) {
+        worldColumns.computeIfPresent(chunkKey, (key, column) -> {
+            column.remove(id);
+            return column.isEmpty() ? null : column;
+        });
+    }
+}
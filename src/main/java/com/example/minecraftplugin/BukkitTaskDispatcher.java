@@ -0,0 +1,75 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * {@link TaskDispatcher} for Paper: every tick task runs on the main thread through the Bukkit scheduler
+ */
+public class BukkitTaskDispatcher implements TaskDispatcher {
+
+    private final Plugin plugin;
+    private final BukkitScheduler scheduler;
+
+    public BukkitTaskDispatcher(Plugin plugin) {
+        this.plugin = plugin;
+        this.scheduler = plugin.getServer().getScheduler();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public TaskHandle runGlobalLater(Runnable task, long delayTicks) {
+        return scheduler.runTaskLater(plugin, task, delayTicks)::cancel;
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduler.runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        // Chunk work is already on the main thread when it is dispatched from a tick task
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            scheduler.runTask(plugin, task);
+        }
+    }
+
+    @Override
+    public TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks) {
+        return scheduler.runTaskLater(plugin, task, delayTicks)::cancel;
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        scheduler.runTaskLater(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        }, delayTicks);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        scheduler.runTaskAsynchronously(plugin, task);
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return scheduler.runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks)::cancel;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return Bukkit.isPrimaryThread();
+    }
+}
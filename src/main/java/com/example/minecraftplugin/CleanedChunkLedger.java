@@ -0,0 +1,63 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Persistent "already cleaned" marker stored in each chunk's PersistentDataContainer.
+ * The marker is saved with the world, so cleaned chunks stay skipped across restarts.
+ * It carries the ledger format version and a fingerprint of the active rules, so any
+ * config or rule change invalidates every existing marker automatically.
+ */
+public class CleanedChunkLedger {
+
+    // Bump this whenever the meaning of a "cleaned" chunk changes between plugin versions
+    private static final int FORMAT_VERSION = 1;
+
+    private final NamespacedKey key;
+
+    // Marker value expected on a clean chunk (format version in the high bits, rules fingerprint in the low bits)
+    private volatile long expectedMarker;
+
+    public CleanedChunkLedger(Plugin plugin) {
+        this.key = new NamespacedKey(plugin, "cleaned");
+    }
+
+    /**
+     * Updates the rules fingerprint. Chunks marked under an older fingerprint are no longer considered clean.
+     * @param rulesFingerprint A hash of every setting that affects what gets removed
+     */
+    public void setRulesFingerprint(int rulesFingerprint) {
+        expectedMarker = ((long) FORMAT_VERSION << 32) | (rulesFingerprint & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether a chunk was cleaned under the current rules
+     * @param chunk The chunk to check
+     * @return true if the chunk carries an up-to-date marker
+     */
+    public boolean isClean(Chunk chunk) {
+        Long marker = chunk.getPersistentDataContainer().get(key, PersistentDataType.LONG);
+        return marker != null && marker == expectedMarker;
+    }
+
+    /**
+     * Marks a chunk as cleaned under the current rules
+     * @param chunk The chunk that was fully scanned
+     */
+    public void markClean(Chunk chunk) {
+        PersistentDataContainer container = chunk.getPersistentDataContainer();
+        container.set(key, PersistentDataType.LONG, expectedMarker);
+    }
+
+    /**
+     * Removes the marker from a chunk so it is scanned again
+     * @param chunk The chunk to invalidate
+     */
+    public void invalidate(Chunk chunk) {
+        chunk.getPersistentDataContainer().remove(key);
+    }
+}
@@ -1,10 +1,7 @@
 package com.example.minecraftplugin;
 
+import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.World.Environment;
-import org.bukkit.block.Block;
-import org.bukkit.entity.Boat;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.ItemFrame;
 import org.bukkit.entity.Player;
@@ -17,10 +14,10 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.world.ChunkPopulateEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.logging.Level;
+import java.util.Locale;
 
 /**
- * Listener for item frame related events to prevent placing elytras in item frames in End ships
+ * Listener for item frame related events to prevent placing the items the rules target in item frames
  */
 public class ElytraFrameListener implements Listener {
     
@@ -32,42 +29,46 @@ public class ElytraFrameListener implements Listener {
     
     /**
      * Event handler for when a player interacts with an entity, including item frames
-     * Prevents placing elytras in item frames in the End
+     * Prevents placing targeted items in item frames
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerInteractEntity(PlayerInteractEntityEvent event) {
+        long start = System.nanoTime();
+        
         // Check if the entity is an item frame
         if (event.getRightClicked().getType() == EntityType.ITEM_FRAME) {
-            // Check if we're in the End
-            if (event.getPlayer().getWorld().getEnvironment() == Environment.THE_END) {
+            // Check if any rule applies to this world
+            RuleSet rules = plugin.getRules();
+            if (rules.appliesTo(event.getRightClicked().getWorld())) {
                 ItemFrame frame = (ItemFrame) event.getRightClicked();
                 
-                // Check if the player is holding an elytra
+                // Check if the player is holding a targeted item
                 ItemStack heldItem = event.getPlayer().getInventory().getItemInMainHand();
-                if (heldItem != null && heldItem.getType() == Material.ELYTRA) {
-                    // Cancel the event in all cases when trying to place an elytra in an item frame in The End
+                if (isTargeted(rules, heldItem, frame.getLocation())) {
+                    // Cancel the event in all cases when trying to place a targeted item in an item frame
                     event.setCancelled(true);
-                    plugin.getLogger().log(Level.INFO, 
-                        "Prevented " + event.getPlayer().getName() + " from placing an elytra in an item frame in The End");
                     
-                    // Notify the player
-                    event.getPlayer().sendMessage("§cElytras cannot be placed in item frames in The End.");
+                    // Audit and notify the player, once per cooldown
+                    notifyBlocked(event.getPlayer(), AuditLog.Type.PREVENTED_INTERACT, frame.getLocation(),
+                                  plugin.getPlayerNotifyMessage(), heldItem.getType());
+                    plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_INTERACT, start);
                     return;
                 }
                 
                 // Also check off-hand
                 ItemStack offHandItem = event.getPlayer().getInventory().getItemInOffHand();
-                if (offHandItem != null && offHandItem.getType() == Material.ELYTRA) {
+                if (isTargeted(rules, offHandItem, frame.getLocation())) {
                     // Cancel the event
                     event.setCancelled(true);
-                    plugin.getLogger().log(Level.INFO, 
-                        "Prevented " + event.getPlayer().getName() + " from placing an elytra in an item frame in The End (off-hand)");
                     
-                    // Notify the player
-                    event.getPlayer().sendMessage("§cElytras cannot be placed in item frames in The End.");
+                    // Audit and notify the player, once per cooldown
+                    notifyBlocked(event.getPlayer(), AuditLog.Type.PREVENTED_INTERACT, frame.getLocation(),
+                                  plugin.getPlayerNotifyMessage(), offHandItem.getType());
                 }
             }
         }
+        
+        plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_INTERACT, start);
     }
     
     /**
@@ -75,27 +76,30 @@ public class ElytraFrameListener implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onHangingPlace(HangingPlaceEvent event) {
-        // Check if the hanging entity is an item frame and we're in the End
+        long start = System.nanoTime();
+        
+        // Check if the hanging entity is an item frame and any rule applies to this world
+        RuleSet rules = plugin.getRules();
         if (event.getEntity().getType() == EntityType.ITEM_FRAME &&
-            event.getEntity().getWorld().getEnvironment() == Environment.THE_END) {
+            rules.appliesTo(event.getEntity().getWorld())) {
             
             Player player = event.getPlayer();
             if (player != null) {
-                // If a player is holding an elytra, don't let them place an item frame in The End
-                if ((player.getInventory().getItemInMainHand() != null && 
-                     player.getInventory().getItemInMainHand().getType() == Material.ELYTRA) ||
-                    (player.getInventory().getItemInOffHand() != null && 
-                     player.getInventory().getItemInOffHand().getType() == Material.ELYTRA) ||
-                    (player.getItemOnCursor() != null && 
-                     player.getItemOnCursor().getType() == Material.ELYTRA)) {
-                    
-                    event.setCancelled(true);
-                    plugin.getLogger().log(Level.INFO, 
-                        "Prevented " + player.getName() + " from placing an item frame in The End while holding an elytra");
-                    player.sendMessage("§cYou cannot place item frames in The End while holding an elytra.");
+                // If a player is holding a targeted item, don't let them place an item frame here
+                Location location = event.getEntity().getLocation();
+                for (ItemStack item : new ItemStack[] { player.getInventory().getItemInMainHand(),
+                                                        player.getInventory().getItemInOffHand(), player.getItemOnCursor() }) {
+                    if (isTargeted(rules, item, location)) {
+                        event.setCancelled(true);
+                        notifyBlocked(player, AuditLog.Type.PREVENTED_HANGING_PLACE, location,
+                                      plugin.getPlayerNotifyFrameMessage(), item.getType());
+                        break;
+                    }
                 }
             }
         }
+        
+        plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_HANGING_PLACE, start);
     }
     
     /**
@@ -103,50 +107,54 @@ public class ElytraFrameListener implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onChunkPopulate(ChunkPopulateEvent event) {
-        if (event.getWorld().getEnvironment() == Environment.THE_END) {
-            // Schedule a delayed check to make sure all entities are properly loaded
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                plugin.scanChunkForEndShips(event.getChunk());
-            }, 20L); // Check 1 second after chunk population
+        long start = System.nanoTime();
+        
+        if (plugin.isSafetyNetEnabled() && plugin.getRules().appliesTo(event.getWorld()) && plugin.isShipCandidate(event.getChunk())) {
+            // Queue a delayed check to make sure all entities are properly loaded
+            plugin.getPendingWorkQueue().chunkPopulated(event.getChunk());
         }
+        
+        plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_CHUNK_POPULATE, start);
     }
     
     /**
-     * Track when item frames spawn in The End
+     * Track when item frames spawn in the worlds the rules apply to
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onEntitySpawn(EntitySpawnEvent event) {
-        if (event.getEntityType() == EntityType.ITEM_FRAME && 
-            event.getLocation().getWorld().getEnvironment() == Environment.THE_END) {
+        long start = System.nanoTime();
+        
+        if (plugin.isSafetyNetEnabled() && event.getEntityType() == EntityType.ITEM_FRAME && 
+            plugin.getRules().appliesTo(event.getLocation().getWorld())) {
             
-            // Schedule a check shortly after the entity spawns to see if it's an elytra frame
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                if (event.getEntity() instanceof ItemFrame) {
-                    ItemFrame frame = (ItemFrame) event.getEntity();
-                    ItemStack item = frame.getItem();
-                    
-                    if (item != null && item.getType() == Material.ELYTRA) {
-                        // Always remove elytras from item frames in The End
-                        frame.setItem(null);
-                        plugin.getLogger().info("Removed elytra from newly spawned item frame in The End at " + 
-                                                frame.getLocation().toString());
-                    }
-                }
-            }, 5L); // Check 5 ticks after spawn
+            // Queue a check shortly after the entity spawns to see if it's an elytra frame
+            plugin.getPendingWorkQueue().entitySpawned(event.getEntity());
         }
+        
+        plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_ENTITY_SPAWN, start);
     }
     
     /**
-     * Determines if an area is likely part of an end ship
-     * @param location The location to check
-     * @return true if the location is likely part of an end ship
+     * Checks an item against the rules, as if it were placed in an item frame at a location
+     * @return true if a rule would remove the item there
      */
-    public boolean isEndShipArea(Block block) {
-        // Check common end ship materials
-        Material type = block.getType();
-        return type == Material.PURPUR_BLOCK || 
-               type == Material.PURPUR_PILLAR || 
-               type == Material.PURPUR_STAIRS || 
-               type == Material.END_ROD;
+    private static boolean isTargeted(RuleSet rules, ItemStack item, Location location) {
+        return item != null && rules.isTargetMaterial(item.getType()) &&
+               rules.match(location.getWorld(), item.getType(), location.getBlockX(), location.getBlockY(), location.getBlockZ()) != null;
+    }
+    
+    /**
+     * Records a prevented placement in the audit log and tells the player, unless the player was already told
+     * within the cooldown; such attempts are only counted and summarized once the cooldown ends
+     * (the audit message itself is only built by the audit writer)
+     * @param message The configured message, {item} and {world} are replaced
+     * @param item The targeted item the player held
+     */
+    private void notifyBlocked(Player player, AuditLog.Type type, Location location, String message, Material item) {
+        if (plugin.getPlayerThrottle().tryAcquire(player.getUniqueId(), player.getName(), type, location)) {
+            plugin.getAuditLog().record(type, location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), player.getName());
+            player.sendMessage(message.replace("{item}", item.name().toLowerCase(Locale.ROOT).replace('_', ' '))
+                                      .replace("{world}", location.getWorld().getName()));
+        }
     }
 }
\ No newline at end of file
@@ -1,25 +1,27 @@
 package com.example.minecraftplugin;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.World.Environment;
 import org.bukkit.block.Block;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.ItemFrame;
-import org.bukkit.entity.Boat;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 /**
@@ -36,15 +38,85 @@ enum ElytraAction {
  */
 public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
     
-    // Settings that will be loaded from config
-    private int endShipMinY = 60;
-    private int endShipMaxY = 100;
-    private boolean removeAllEndElytras = true;
-    private int scanIntensity = 2;
-    private ElytraAction elytraAction = ElytraAction.REPLACE_WITH_APPLE; // Default to replacing with apple
+    // Shared by every REPLACE_WITH_APPLE removal; setItem stores a copy, so it is never modified
+    private static final ItemStack REPLACEMENT_APPLE = new ItemStack(Material.APPLE);
     
-    // Set to track processed chunks to avoid excessive duplicate checks
-    private final Set<String> recentlyProcessedChunks = new HashSet<>();
+    // Settings that will be loaded from config; read from async workers too, so they are swapped as a whole
+    private final AtomicReference<RuleSet> rules = new AtomicReference<>();
+    private volatile boolean interceptionEnabled = false;
+    private volatile boolean interceptionSafetyNet = true;
+    private volatile String playerNotifyMessage = "§cYou cannot place {item} in item frames in {world}.";
+    private volatile String playerNotifyFrameMessage = "§cYou cannot place item frames in {world} while holding {item}.";
+    
+    // Chunks scanned recently, to avoid excessive duplicate checks; each entry expires on its own
+    private final ProcessedChunkCache processedChunkCache = new ProcessedChunkCache(300, 0.2, 131072);
+    
+    // Persistent per-chunk marker so chunks cleaned under the current rules are skipped across restarts
+    private CleanedChunkLedger cleanedChunkLedger;
+    
+    // Live index of the item frames in the worlds the rules apply to, so scans don't have to walk every entity
+    private final ItemFrameRegistry itemFrameRegistry = new ItemFrameRegistry();
+    
+    // Timings and counters for /elytraremover stats and the Prometheus text file
+    private final ScanMetrics metrics = new ScanMetrics();
+    
+    // Spatial grid of boat positions, for the boat-proximity checks
+    private final BoatGrid boatGrid = new BoatGrid();
+    
+    // Global, region and entity schedulers: the Bukkit scheduler on Paper, the region schedulers on Folia
+    private final TaskDispatcher taskDispatcher;
+    
+    // Deduplicated, delayed checks of loaded/populated chunks and spawned item frames, drained every tick
+    private final PendingWorkQueue pendingWorkQueue;
+    
+    // Deduplicates the removals found by the scan paths and applies them in one batch per tick
+    private final RemovalPipeline removalPipeline;
+    
+    // Tick-budgeted engine that every scan is worked off through
+    private final ScanScheduler scanScheduler;
+    
+    // Opt-in sweep of the End chunks that are not loaded
+    private UnloadedChunkSweeper unloadedChunkSweeper;
+    
+    // Schedules the periodic scans and scales them with the server's tick time
+    private ScanThrottle scanThrottle;
+    
+    // Asynchronous, batched audit trail of removals and prevented placements
+    private AuditLog auditLog;
+    
+    // Per-player cooldown of the messages and audit lines of blocked placements
+    private PlayerThrottle playerThrottle;
+    
+    // Last manual scan started by /elytraremover scan, so it can be cancelled
+    private volatile ManualScanJob manualScan;
+    
+    // Persisted index of the chunks End City ships can be in, used unless all End elytras are removed
+    private ShipIndex shipIndex;
+    
+    // Confirms the ship index chunks by their blocks, counted from chunk snapshots on worker threads
+    private final ShipClassifier shipClassifier;
+    
+    // Ship check of the ships-only rules: the ship index, then the block classification
+    private final RuleSet.ShipCheck shipCheck = (world, x, z) -> isShipChunk(world.getChunkAt(x >> 4, z >> 4));
+    
+    // Removes elytras as End City entities are generated or first loaded (does nothing unless enabled)
+    private final GenerationInterceptor generationInterceptor = new GenerationInterceptor(this);
+    
+    public ElytraRemoverPlugin() {
+        this(UnaryOperator.identity());
+    }
+    
+    /**
+     * @param dispatcherDecorator Wraps the scheduler abstraction before any component captures it
+     *                            (used by the load simulation of the benchmark module to time every task)
+     */
+    ElytraRemoverPlugin(UnaryOperator<TaskDispatcher> dispatcherDecorator) {
+        taskDispatcher = dispatcherDecorator.apply(TaskDispatcher.create(this));
+        pendingWorkQueue = new PendingWorkQueue(metrics, taskDispatcher, this::scanChunkForEndShips, this::checkSpawnedFrame, 4096);
+        removalPipeline = new RemovalPipeline(metrics, taskDispatcher, this::matchFrame, this::removeElytraFromFrame);
+        scanScheduler = new ScanScheduler(metrics, taskDispatcher, world -> getRules().appliesTo(world), 2_000_000L, 200);
+        shipClassifier = new ShipClassifier(metrics, taskDispatcher, this::shipFound);
+    }
     
     @Override
     public void onEnable() {
@@ -55,8 +127,18 @@ public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
         // Save default config
         saveDefaultConfig();
         
+        // The ledger must exist before the configuration is loaded, since it is keyed on the rules
+        cleanedChunkLedger = new CleanedChunkLedger(this);
+        unloadedChunkSweeper = new UnloadedChunkSweeper(this);
+        scanThrottle = new ScanThrottle(getLogger(), scanScheduler, unloadedChunkSweeper, this::submitSweep, this::submitFullScan,
+                                      taskDispatcher.isRegionized());
+        auditLog = new AuditLog(getLogger(), new File(getDataFolder(), "audit"), getConfig().getInt("audit.buffer-size", 8192));
+        playerThrottle = new PlayerThrottle(auditLog, metrics, 3000L);
+        shipIndex = new ShipIndex(getLogger(), new File(getDataFolder(), "ships"));
+        
         // Load configuration
         loadConfiguration();
+        auditLog.start();
         
         // Register event listeners
         getServer().getPluginManager().registerEvents(new ElytraFrameListener(this), this);
@@ -64,60 +146,178 @@ public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
         // Also register this class as a listener for chunk load events
         getServer().getPluginManager().registerEvents(this, this);
         
-        // Start a periodic task to check for elytras in item frames in end ships
-        scheduleElytraRemovalTask();
+        // Intercept elytra frames as they are generated; worlds created later get the populator on init
+        getServer().getPluginManager().registerEvents(generationInterceptor, this);
+        for (World world : Bukkit.getWorlds()) {
+            generationInterceptor.attach(world);
+        }
+        
+        // Keep the item frame index current, and seed it with whatever is already loaded (e.g. after /reload)
+        getServer().getPluginManager().registerEvents(new EntityIndexListener(itemFrameRegistry, boatGrid, processedChunkCache,
+            cleanedChunkLedger, world -> getRules().appliesTo(world)), this);
+        indexLoadedEntities();
+        
+        // Work off queued scans a little every tick
+        taskDispatcher.runGlobalTimer(scanScheduler, 1L, 1L);
+        
+        // Run the queued event checks that are due, once per tick
+        taskDispatcher.runGlobalTimer(pendingWorkQueue, 1L, 1L);
+        
+        // Apply the removals queued by the scans, once per tick
+        taskDispatcher.runGlobalTimer(removalPipeline, 1L, 1L);
+        
+        // Write the metrics for node-exporter's textfile collector off the main thread
+        long metricsInterval = 20L * Math.max(1, getConfig().getInt("metrics.prometheus-interval-seconds", 30));
+        if (getConfig().getBoolean("metrics.prometheus-file", true)) {
+            File metricsFile = new File(getDataFolder(), "metrics.prom");
+            taskDispatcher.runAsyncTimer(() -> {
+                try {
+                    metrics.writePrometheusFile(metricsFile);
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Could not write " + metricsFile.getName(), e);
+                }
+            }, metricsInterval, metricsInterval);
+        }
+        
+        // Persist newly classified chunks of the ship index every 5 minutes
+        taskDispatcher.runAsyncTimer(shipIndex::saveAll, 20L * 60 * 5, 20L * 60 * 5);
+        
+        // The background sweep checks every tick whether it may load more chunks (it does nothing unless enabled)
+        taskDispatcher.runGlobalTimer(unloadedChunkSweeper, 20L * 30, 1L);
+        
+        // Queue the periodic sweeps and full scans, as often as the scan intensity and the server's load allow
+        taskDispatcher.runGlobalTimer(scanThrottle, 20L, 20L);
         
         // Run an immediate check when the plugin starts for all loaded chunks
-        getServer().getScheduler().runTaskLater(this, () -> {
-            getLogger().info("Running initial scan for elytras in The End...");
-            for (World world : Bukkit.getWorlds()) {
-                if (world.getEnvironment() == Environment.THE_END) {
-                    for (Chunk chunk : world.getLoadedChunks()) {
-                        scanChunkForEndShips(chunk);
+        taskDispatcher.runGlobalLater(() -> {
+            getLogger().info("Running initial scan for elytras...");
+            // Only chunks that actually hold item frames can hold an elytra
+            scanScheduler.submit("initial", itemFrameRegistry::getChunkKeyArray, this::scanIndexedChunk,
+                () -> getLogger().info("Initial scan complete!"));
+        }, 40L); // Wait 2 seconds after server start to ensure worlds are fully loaded
+        
+        // Expire the processed chunk cache entries that are due, once per second
+        taskDispatcher.runGlobalTimer(processedChunkCache, 20L, 20L);
+        
+        // Close the notification cooldowns that ran out and summarize them, once per second
+        taskDispatcher.runGlobalTimer(playerThrottle, 20L, 20L);
+    }
+    
+    /**
+     * Adds the item frames and boats of the loaded chunks of every world the rules apply to to the indexes
+     */
+    private void indexLoadedEntities() {
+        for (World world : Bukkit.getWorlds()) {
+            if (getRules().appliesTo(world)) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    if (chunk.isEntitiesLoaded()) {
+                        List<Entity> entities = Arrays.asList(chunk.getEntities());
+                        itemFrameRegistry.addAll(entities);
+                        boatGrid.addAll(entities);
                     }
                 }
             }
-        }, 40L); // Wait 2 seconds after server start to ensure worlds are fully loaded
-        
-        // Periodically clean up the chunk tracking set
-        getServer().getScheduler().runTaskTimer(this, () -> {
-            recentlyProcessedChunks.clear();
-            getLogger().fine("Cleared recently processed chunks cache");
-        }, 20L * 60 * 5, 20L * 60 * 5); // Every 5 minutes
+        }
     }
     
     /**
      * Loads configuration settings from config.yml
+     * (package-private so the benchmark module can switch settings)
      */
-    private void loadConfiguration() {
+    void loadConfiguration() {
         // Reload the config from disk
         reloadConfig();
         
-        // Load end ship detection settings
-        endShipMinY = getConfig().getInt("end-ship.min-y", 60);
-        endShipMaxY = getConfig().getInt("end-ship.max-y", 100);
-        removeAllEndElytras = getConfig().getBoolean("end-ship.remove-all-end-elytras", true);
-        scanIntensity = getConfig().getInt("end-ship.scan-intensity", 2);
-        
-        // Load the action to take when finding an elytra
-        String actionString = getConfig().getString("end-ship.action", "REPLACE_WITH_APPLE");
-        try {
-            elytraAction = ElytraAction.valueOf(actionString);
-        } catch (IllegalArgumentException e) {
-            getLogger().warning("Invalid elytra action in config: " + actionString + ". Using default: REPLACE_WITH_APPLE");
-            elytraAction = ElytraAction.REPLACE_WITH_APPLE;
+        // Compile the removal rules into a snapshot, swapped in once complete
+        RuleSet ruleSet = RuleSet.compile(getConfig(), getLogger());
+        RuleSet previous = rules.getAndSet(ruleSet);
+        int scanIntensity = getConfig().getInt("end-ship.scan-intensity", 2);
+        
+        // Load the generation-time interception settings
+        interceptionEnabled = getConfig().getBoolean("interception.enabled", false);
+        interceptionSafetyNet = getConfig().getBoolean("interception.safety-net", true);
+        
+        // Load the event queue settings
+        pendingWorkQueue.configure(getConfig().getInt("event-queue.max-entries", 4096),
+                                   getConfig().getInt("event-queue.chunk-load-delay-ticks", 10),
+                                   getConfig().getInt("event-queue.chunk-populate-delay-ticks", 20),
+                                   getConfig().getInt("event-queue.entity-spawn-delay-ticks", 5));
+        
+        // Load the processed chunk cache settings
+        processedChunkCache.configure(getConfig().getInt("scan.processed-cache.ttl-seconds", 300),
+                                      getConfig().getDouble("scan.processed-cache.jitter", 0.2),
+                                      getConfig().getInt("scan.processed-cache.max-entries", 131072));
+        
+        // Load the scan frequency and per-tick budget, which the throttle scales with the server's load
+        scanThrottle.configure(ScanThrottle.Profile.of(scanIntensity),
+                               getConfig().getBoolean("scan.adaptive.enabled", true),
+                               getConfig().getInt("check-interval", 10),
+                               getConfig().getDouble("scan.adaptive.event-only-mspt", 45.0),
+                               getConfig().getDouble("scan.adaptive.max-slowdown", 8.0),
+                               getConfig().getLong("scan.tick-budget-nanos", 2_000_000L),
+                               getConfig().getLong("scan.adaptive.min-tick-budget-nanos", 250_000L),
+                               getConfig().getInt("scan.max-pass-ticks", 200));
+        
+        // Load the audit log settings - debug decides whether removals also reach the console
+        auditLog.configure(getConfig().getBoolean("audit.enabled", true),
+                           getConfig().getBoolean("debug", false),
+                           getConfig().getLong("audit.max-file-size-mb", 10L) * 1024L * 1024L,
+                           getConfig().getInt("audit.max-files", 5),
+                           getConfig().getString("messages.removed", "Removed an elytra from an item frame at location: {location}"),
+                           getConfig().getString("messages.prevented", "Prevented {player} from placing an elytra in an item frame in The End"));
+        playerThrottle.configure(Math.round(getConfig().getDouble("messages.player-notify-cooldown-seconds", 3.0) * 1000.0));
+        playerNotifyMessage = getConfig().getString("messages.player-notify", "§cYou cannot place {item} in item frames in {world}.");
+        playerNotifyFrameMessage = getConfig().getString("messages.player-notify-frame", "§cYou cannot place item frames in {world} while holding {item}.");
+        
+        // Load the background sweep settings
+        unloadedChunkSweeper.configure(getConfig().getBoolean("background-sweep.enabled", false),
+                                       getConfig().getInt("background-sweep.max-in-flight", 4),
+                                       getConfig().getBoolean("background-sweep.pause-when-players-online", true),
+                                       getConfig().getDouble("background-sweep.max-mspt", 40.0));
+        
+        // A different Y range needs the ships to be classified again
+        shipIndex.configure(ruleSet.getShipMinY(), ruleSet.getShipMaxY());
+        shipClassifier.configure(getConfig().getBoolean("end-ship.block-classification.enabled", true), ruleSet.hasShipsOnlyRules(),
+                                 getConfig().getInt("end-ship.block-classification.min-ship-blocks", 32),
+                                 getConfig().getInt("end-ship.block-classification.threads", 2),
+                                 ruleSet.getShipMinY(), ruleSet.getShipMaxY());
+        
+        // Any change to the rules invalidates the "cleaned" markers stored in chunks
+        cleanedChunkLedger.setRulesFingerprint(ruleSet.getFingerprint());
+        
+        // After a reload, chunks scanned under the old rules are scanned again, and worlds the rules now
+        // cover are indexed
+        if (previous != null && previous.getFingerprint() != ruleSet.getFingerprint()) {
+            processedChunkCache.clear();
+            indexLoadedEntities();
         }
         
         getLogger().info("Configuration loaded successfully:");
-        getLogger().info("- End ship Y range: " + endShipMinY + " to " + endShipMaxY);
-        getLogger().info("- Remove all End elytras: " + removeAllEndElytras);
-        getLogger().info("- Scan intensity: " + scanIntensity);
-        getLogger().info("- Elytra action: " + elytraAction);
+        for (String line : ruleSet.describe()) {
+            getLogger().info(line);
+        }
+        getLogger().info("- Scan intensity: " + scanIntensity + " (" + ScanThrottle.Profile.of(scanIntensity) + " profile)");
+        getLogger().info("- Generation-time interception: " + interceptionEnabled + (interceptionEnabled ? " (safety net: " + interceptionSafetyNet + ")" : ""));
     }
     
     @Override
     public void onDisable() {
         // Plugin shutdown logic
+        generationInterceptor.detachAll();
+        removalPipeline.flush();
+        if (unloadedChunkSweeper != null) {
+            unloadedChunkSweeper.shutdown();
+        }
+        if (playerThrottle != null) {
+            playerThrottle.flush();
+        }
+        if (auditLog != null) {
+            auditLog.stop();
+        }
+        if (shipIndex != null) {
+            shipIndex.saveAll();
+        }
+        shipClassifier.shutdown();
         getLogger().info("ElytraRemover has been disabled!");
     }
     
@@ -127,80 +327,81 @@ public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
             if (args.length == 0) {
                 sender.sendMessage("§aElytraRemover §7v1.0.0 §f- Created by §6Zaoldieck");
                 sender.sendMessage("§7/elytraremover reload §f- Reload configuration");
-                sender.sendMessage("§7/elytraremover scan §f- Force scan all loaded chunks");
+                sender.sendMessage("§7/elytraremover scan [dry-run|cancel] §f- Scan all loaded chunks in the background, or cancel the scan");
+                sender.sendMessage("§7/elytraremover verify §f- Check the item frame index against a real scan");
+                sender.sendMessage("§7/elytraremover stats §f- Show scan timings and counters");
+                sender.sendMessage("§7/elytraremover sweep [reset] §f- Show or restart the background sweep of unloaded chunks");
                 return true;
             }
             
             if (args[0].equalsIgnoreCase("reload")) {
-                // Reload config
-                reloadConfig();
+                // Reload config and apply it
+                loadConfiguration();
                 sender.sendMessage("§aElytraRemover configuration reloaded!");
                 return true;
             }
             
             if (args[0].equalsIgnoreCase("scan")) {
-                sender.sendMessage("§aStarting AGGRESSIVE manual scan for elytras in The End...");
+                if (args.length > 1 && args[1].equalsIgnoreCase("cancel")) {
+                    ManualScanJob job = manualScan;
+                    if (job == null || !scanScheduler.isQueued("manual")) {
+                        sender.sendMessage("§cNo manual scan is running.");
+                    } else {
+                        job.cancel();
+                        sender.sendMessage("§eCancelling the manual scan...");
+                    }
+                    return true;
+                }
                 
-                // Do this immediately and directly on the main thread for best results
-                recentlyProcessedChunks.clear(); // Clear cache for a full rescan
-                int count = 0;
-                int elytraFound = 0;
-                int itemFramesFound = 0;
+                boolean dryRun = args.length > 1 && args[1].equalsIgnoreCase("dry-run");
+                ManualScanJob job = new ManualScanJob(this, sender, dryRun);
+                if (!job.start(scanScheduler, itemFrameRegistry)) {
+                    sender.sendMessage("§cA manual scan is already running.");
+                    return true;
+                }
+                manualScan = job;
                 
+                // Spread over several ticks by the scan scheduler; details go to a report file, not to chat
+                sender.sendMessage("§aStarting AGGRESSIVE manual scan for elytras" + (dryRun ? " (dry run, nothing will be removed)" : "") + "...");
+                return true;
+            }
+            
+            if (args[0].equalsIgnoreCase("stats")) {
+                sender.sendMessage("§aElytraRemover statistics:");
+                for (String line : metrics.describe()) {
+                    sender.sendMessage(line);
+                }
+                sender.sendMessage("§7Scan throttle: §f" + scanThrottle.getStatus());
+                return true;
+            }
+            
+            if (args[0].equalsIgnoreCase("sweep")) {
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    unloadedChunkSweeper.reset();
+                    sender.sendMessage("§aBackground sweep restarted from the beginning.");
+                    return true;
+                }
+                sender.sendMessage("§aBackground sweep: §7" + unloadedChunkSweeper.getStatus());
+                return true;
+            }
+            
+            if (args[0].equalsIgnoreCase("verify")) {
+                // A real scan walks every entity of a world, which no single thread owns on Folia
+                if (taskDispatcher.isRegionized()) {
+                    sender.sendMessage("§cThe index can't be verified on Folia.");
+                    return true;
+                }
                 for (World world : Bukkit.getWorlds()) {
-                    if (world.getEnvironment() == Environment.THE_END) {
-                        sender.sendMessage("§7Scanning end world: " + world.getName());
-                        
-                        // First scan chunks
-                        for (Chunk chunk : world.getLoadedChunks()) {
-                            scanChunkForEndShips(chunk);
-                            count++;
-                        }
-                        
-                        // Then do a DIRECT entity scan (most reliable)
-                        for (Entity entity : world.getEntities()) {
-                            if (entity.getType() == EntityType.ITEM_FRAME) {
-                                itemFramesFound++;
-                                ItemFrame frame = (ItemFrame) entity;
-                                ItemStack item = frame.getItem();
-                                
-                                if (item != null) {
-                                    sender.sendMessage("§7Item frame found at " + 
-                                                    frame.getLocation().getBlockX() + ", " + 
-                                                    frame.getLocation().getBlockY() + ", " + 
-                                                    frame.getLocation().getBlockZ() + 
-                                                    " contains: " + item.getType().name());
-                                    
-                                    if (item.getType() == Material.ELYTRA) {
-                                        elytraFound++;
-                                        removeElytraFromFrame(frame);
-                                        sender.sendMessage("§c→ ELYTRA REMOVED from item frame at: " + 
-                                                        frame.getLocation().getBlockX() + ", " + 
-                                                        frame.getLocation().getBlockY() + ", " + 
-                                                        frame.getLocation().getBlockZ());
-                                    }
-                                }
-                            }
+                    if (getRules().appliesTo(world)) {
+                        ItemFrameRegistry.Verification result = itemFrameRegistry.verify(world);
+                        if (result.isConsistent()) {
+                            sender.sendMessage("§a" + world.getName() + ": index consistent (" + result.indexed + " item frames)");
+                        } else {
+                            sender.sendMessage("§c" + world.getName() + ": index had " + result.indexed + " item frames, scan found " + 
+                                            result.actual + " (" + result.missing + " missing, " + result.stale + " stale) - index rebuilt");
                         }
                     }
                 }
-                
-                sender.sendMessage("§aScan complete! Checked " + count + " chunks.");
-                sender.sendMessage("§aFound " + itemFramesFound + " item frames, found " + elytraFound + " elytras.");
-                
-                // Show what action was taken
-                switch (elytraAction) {
-                    case REMOVE_ELYTRA:
-                        sender.sendMessage("§aAction taken: Removed elytras from item frames");
-                        break;
-                    case REMOVE_FRAME:
-                        sender.sendMessage("§aAction taken: Removed item frames containing elytras near boats");
-                        break;
-                    case REPLACE_WITH_APPLE:
-                        sender.sendMessage("§aAction taken: Replaced elytras with apples in item frames");
-                        break;
-                }
-                
                 return true;
             }
             
@@ -216,60 +417,77 @@ public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
      */
     @EventHandler
     public void onChunkLoad(ChunkLoadEvent event) {
-        if (event.getWorld().getEnvironment() == Environment.THE_END) {
-            // Schedule a delayed task to check the chunk after it's fully loaded
-            getServer().getScheduler().runTaskLater(this, () -> {
-                scanChunkForEndShips(event.getChunk());
-            }, 10L); // Wait half a second after chunk load
+        if (isSafetyNetEnabled() && getRules().appliesTo(event.getWorld()) && isShipCandidate(event.getChunk())) {
+            // Queue a delayed check of the chunk after it's fully loaded
+            pendingWorkQueue.chunkLoaded(event.getChunk());
         }
     }
     
     /**
-     * Schedules a periodic task to check and remove elytras from item frames in End ships
+     * Queues a sweep of all covered worlds, called by the scan throttle
      */
-    private void scheduleElytraRemovalTask() {
-        // More frequent checks - every 5 seconds
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Check all End worlds
-                for (World world : Bukkit.getWorlds()) {
-                    if (world.getEnvironment() == Environment.THE_END) {
-                        // Instead of checking the entire world, focus on loaded chunks
-                        for (Chunk chunk : world.getLoadedChunks()) {
-                            scanChunkForEndShips(chunk);
-                        }
-                    }
-                }
-            }
-        }.runTaskTimer(this, 20L * 5, 20L * 5); // Run every 5 seconds (20 ticks * 5)
+    private void submitSweep() {
+        if (!isSafetyNetEnabled()) {
+            return;
+        }
+        // Instead of checking every loaded chunk, focus on the ones holding item frames.
+        // If the previous sweep is still being worked off, it is not queued twice.
+        scanScheduler.submit("sweep", true, itemFrameRegistry::getChunkKeyArray, this::scanIndexedChunk, null);
+    }
+    
+    /**
+     * Queues a complete scan of all entities of the chunks holding item frames, called by the scan throttle
+     */
+    private void submitFullScan() {
+        if (!isSafetyNetEnabled()) {
+            return;
+        }
+        if (scanScheduler.submit("full", true, itemFrameRegistry::getChunkKeyArray, this::deepScanChunk,
+                                 () -> getLogger().info("Full entity scan complete!"))) {
+            getLogger().info("Running full entity scan for elytras...");
+        }
+    }
+    
+    /**
+     * Scans an indexed chunk if it is still loaded
+     * @param world The world the chunk belongs to
+     * @param chunkKey The chunk key, as returned by {@link Chunk#getChunkKey()}
+     */
+    private void scanIndexedChunk(World world, long chunkKey) {
+        Chunk chunk = getLoadedChunk(world, chunkKey);
+        if (chunk != null) {
+            scanChunkForEndShips(chunk);
+        }
+    }
+    
+    /**
+     * Direct pass over every indexed item frame of a chunk - more thorough, but chunks already cleaned are skipped
+     * @param world The world the chunk belongs to
+     * @param chunkKey The chunk key, as returned by {@link Chunk#getChunkKey()}
+     */
+    private void deepScanChunk(World world, long chunkKey) {
+        Chunk chunk = getLoadedChunk(world, chunkKey);
+        if (chunk == null || cleanedChunkLedger.isClean(chunk) || !isShipCandidate(chunk)) {
+            return;
+        }
         
-        // Second task that does a complete scan of all entities every minute
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                getLogger().info("Running full entity scan for elytras in The End...");
-                for (World world : Bukkit.getWorlds()) {
-                    if (world.getEnvironment() == Environment.THE_END) {
-                        // Direct entity scan - more thorough
-                        for (Entity entity : world.getEntities()) {
-                            if (entity.getType() == EntityType.ITEM_FRAME) {
-                                ItemFrame frame = (ItemFrame) entity;
-                                ItemStack item = frame.getItem();
-                                if (item != null && item.getType() == Material.ELYTRA) {
-                                    removeElytraFromFrame(frame);
-                                    getLogger().info("Deep scan removed elytra from item frame at: " + 
-                                                    frame.getLocation().getBlockX() + ", " + 
-                                                    frame.getLocation().getBlockY() + ", " + 
-                                                    frame.getLocation().getBlockZ());
-                                }
-                            }
-                        }
-                    }
-                }
-                getLogger().info("Full entity scan complete!");
+        boolean removalsQueued = false;
+        for (ItemFrame frame : itemFrameRegistry.getFrames(world, chunkKey)) {
+            if (!frame.isValid()) {
+                continue;
             }
-        }.runTaskTimer(this, 20L * 20, 20L * 60); // Run every minute (first after 20 seconds)
+            if (removalPipeline.isHandled(frame)) {
+                removalsQueued = true;
+            } else if (matchFrame(frame) != null) {
+                removalPipeline.submit(frame, "deep scan");
+                removalsQueued = true;
+            }
+        }
+        
+        // The removals are only applied with the next batch; a later scan marks the chunk once they were
+        if (chunk.isEntitiesLoaded() && !removalsQueued) {
+            cleanedChunkLedger.markClean(chunk);
+        }
     }
     
     /**
@@ -277,120 +495,345 @@ public class ElytraRemoverPlugin extends JavaPlugin implements Listener {
      * @param chunk The chunk to scan
      */
     public void scanChunkForEndShips(Chunk chunk) {
-        String chunkKey = chunk.getX() + ":" + chunk.getZ() + ":" + chunk.getWorld().getName();
+        long start = System.nanoTime();
+        long chunkKey = chunk.getChunkKey();
         
         // Skip if we've recently processed this chunk
-        if (recentlyProcessedChunks.contains(chunkKey)) {
+        if (processedChunkCache.contains(chunk.getWorld(), chunkKey)) {
+            metrics.increment(ScanMetrics.Counter.PROCESSED_CACHE_HITS);
+            return;
+        }
+        metrics.increment(ScanMetrics.Counter.PROCESSED_CACHE_MISSES);
+        
+        // Skip in O(1) if the chunk was already cleaned under the current rules, even before a restart
+        if (cleanedChunkLedger.isClean(chunk)) {
+            metrics.increment(ScanMetrics.Counter.LEDGER_HITS);
+            processedChunkCache.add(chunk.getWorld(), chunkKey);
             return;
         }
         
         // Add to recently processed
-        recentlyProcessedChunks.add(chunkKey);
+        processedChunkCache.add(chunk.getWorld(), chunkKey);
         
-        // Find all item frames in the chunk - directly focus on removing elytras
-        for (Entity entity : chunk.getEntities()) {
-            // Skip if not an item frame
-            if (entity.getType() != EntityType.ITEM_FRAME) {
+        // Skip chunks no End City ship reaches into, if every rule of the world is limited to ships
+        if (!isShipCandidate(chunk)) {
+            metrics.increment(ScanMetrics.Counter.SHIP_INDEX_SKIPS);
+            return;
+        }
+        metrics.increment(ScanMetrics.Counter.CHUNKS_SCANNED);
+        
+        // Find all indexed item frames in the chunk - directly focus on removing elytras
+        boolean removalsQueued = false;
+        for (ItemFrame itemFrame : itemFrameRegistry.getFrames(chunk.getWorld(), chunk.getChunkKey())) {
+            // Skip frames that were removed since they were indexed
+            if (!itemFrame.isValid()) {
                 continue;
             }
+            // ...or that another path already found
+            if (removalPipeline.isHandled(itemFrame)) {
+                removalsQueued = true;
+                continue;
+            }
+            metrics.increment(ScanMetrics.Counter.FRAMES_SCANNED);
             
-            ItemFrame itemFrame = (ItemFrame) entity;
-            
-            // Check if the item frame has an elytra - this is all we care about
-            ItemStack displayedItem = itemFrame.getItem();
-            if (displayedItem != null && displayedItem.getType() == Material.ELYTRA) {
-                // Immediately remove the elytra - don't check for ships, just remove all elytras
-                // in all item frames in The End dimension
-                removeElytraFromFrame(itemFrame);
-                getLogger().info("Removed elytra from item frame at: " + 
-                                itemFrame.getLocation().getBlockX() + ", " + 
-                                itemFrame.getLocation().getBlockY() + ", " + 
-                                itemFrame.getLocation().getBlockZ());
+            // Check if the item frame shows an item a rule targets - this is all we care about
+            RuleSet.Rule rule = matchFrame(itemFrame);
+            if (rule != null) {
+                // Remove the item with the next batch
+                removalPipeline.submit(itemFrame, "chunk scan");
+                removalsQueued = true;
             }
         }
         
         // Also do a second pass to look for any nearby boats to ensure we don't miss anything
-        for (Entity entity : chunk.getEntities()) {
-            if (entity instanceof Boat) {
-                // If we find a boat, check all nearby item frames within 10 blocks
-                for (Entity nearbyEntity : entity.getNearbyEntities(10, 10, 10)) {
-                    if (nearbyEntity instanceof ItemFrame) {
-                        ItemFrame frame = (ItemFrame) nearbyEntity;
-                        ItemStack item = frame.getItem();
-                        if (item != null && item.getType() == Material.ELYTRA) {
-                            // This is definitely in a boat - remove it
-                            removeElytraFromFrame(frame);
-                            getLogger().info("Removed elytra from item frame near boat at: " + 
-                                            frame.getLocation().getBlockX() + ", " + 
-                                            frame.getLocation().getBlockY() + ", " + 
-                                            frame.getLocation().getBlockZ());
-                        }
-                    }
+        long boatPassStart = System.nanoTime();
+        World world = chunk.getWorld();
+        long boatChunkKey = chunk.getChunkKey();
+        if (boatGrid.hasBoats(world, boatChunkKey)) {
+            // If this chunk has a boat, check the indexed item frames within 10 blocks of it,
+            // which can only be in this chunk or its direct neighbours. A neighbour in another region
+            // is checked on the thread owning it; on Paper, and inside the region, this runs right away
+            for (int offsetX = -1; offsetX <= 1; offsetX++) {
+                for (int offsetZ = -1; offsetZ <= 1; offsetZ++) {
+                    int nearbyChunkX = chunk.getX() + offsetX;
+                    int nearbyChunkZ = chunk.getZ() + offsetZ;
+                    taskDispatcher.runAtChunk(world, nearbyChunkX, nearbyChunkZ,
+                        () -> scanFramesNearBoats(world, boatChunkKey, Chunk.getChunkKey(nearbyChunkX, nearbyChunkZ)));
                 }
             }
         }
+        
+        metrics.record(ScanMetrics.Timer.BOAT_PASS, boatPassStart);
+        
+        // Only persist the marker once the chunk's entities were actually available to scan, and no removal of its
+        // frames is still waiting for the next batch - a later scan marks the chunk once they were applied
+        if (chunk.isEntitiesLoaded() && !removalsQueued) {
+            cleanedChunkLedger.markClean(chunk);
+        }
+        
+        metrics.record(ScanMetrics.Timer.CHUNK_SCAN, start);
     }
     
     /**
-     * We no longer need to check if an item frame is in an end ship
-     * Just remove ALL elytras from ALL item frames in The End dimension
-     * @param itemFrame The item frame to check
-     * @return always returns true to remove all elytras
+     * Queues the removal of the indexed item frames of a chunk that are within 10 blocks of a boat;
+     * runs on the thread owning the frames' chunk
+     * @param world The world of the chunks
+     * @param boatChunkKey The chunk key of the chunk holding the boats
+     * @param frameChunkKey The chunk key of the chunk holding the frames
      */
-    private boolean isLikelyInEndShip(ItemFrame itemFrame) {
-        // Don't bother with any checks, just remove ALL elytras
-        return true;
+    private void scanFramesNearBoats(World world, long boatChunkKey, long frameChunkKey) {
+        for (ItemFrame frame : itemFrameRegistry.getFrames(world, frameChunkKey)) {
+            metrics.increment(ScanMetrics.Counter.ENTITIES_SCANNED);
+            if (!frame.isValid() || removalPipeline.isHandled(frame)) {
+                continue;
+            }
+            
+            Location frameLocation = frame.getLocation();
+            if (boatGrid.isNearBoatInChunk(world, boatChunkKey, frameLocation.getX(), frameLocation.getY(), frameLocation.getZ(), 10)) {
+                // Player boats are near frames too, so ships-only rules still need the frame to be in a ship
+                RuleSet.Rule rule = matchFrame(frame);
+                if (rule != null) {
+                    removalPipeline.submit(frame, "boat scan");
+                }
+            }
+        }
     }
     
     /**
-     * Takes action on an item frame with an elytra based on the configured action
-     * @param itemFrame The item frame containing the elytra
+     * Removes the item of a spawned item frame if a rule targets it
+     * @param entity The spawned entity
      */
-    private void removeElytraFromFrame(ItemFrame itemFrame) {
-        String location = itemFrame.getLocation().getBlockX() + ", " + 
-                         itemFrame.getLocation().getBlockY() + ", " + 
-                         itemFrame.getLocation().getBlockZ();
-        
-        // Check if this item frame is near a boat - if so, we're dealing with an end ship boat
-        boolean isNearBoat = false;
-        for (Entity nearby : itemFrame.getNearbyEntities(5, 5, 5)) {
-            if (nearby instanceof Boat) {
-                isNearBoat = true;
-                break;
+    void checkSpawnedFrame(Entity entity) {
+        if (entity instanceof ItemFrame && !removalPipeline.isHandled((ItemFrame) entity)) {
+            ItemFrame frame = (ItemFrame) entity;
+            RuleSet.Rule rule = matchFrame(frame);
+            if (rule != null) {
+                removalPipeline.submit(frame, "spawn");
             }
         }
+    }
+    
+    /**
+     * Forgets which chunks were recently processed, so the next sweep scans them again
+     */
+    void clearRecentlyProcessedChunks() {
+        processedChunkCache.clear();
+    }
+    
+    /**
+     * Looks up a chunk without loading it
+     * @param world The world the chunk belongs to
+     * @param chunkKey The chunk key, as returned by {@link Chunk#getChunkKey()}
+     * @return the chunk, or null if it is not loaded
+     */
+    private Chunk getLoadedChunk(World world, long chunkKey) {
+        int chunkX = (int) chunkKey;
+        int chunkZ = (int) (chunkKey >> 32);
+        return world.isChunkLoaded(chunkX, chunkZ) ? world.getChunkAt(chunkX, chunkZ) : null;
+    }
+    
+    /**
+     * @return the current removal rules; the snapshot never changes, a reload swaps in a new one
+     */
+    public RuleSet getRules() {
+        return rules.get();
+    }
+    
+    /**
+     * @return the live index of item frames in the worlds the rules apply to
+     */
+    public ItemFrameRegistry getItemFrameRegistry() {
+        return itemFrameRegistry;
+    }
+    
+    /**
+     * @return the spatial grid of boats in the worlds the rules apply to
+     */
+    public BoatGrid getBoatGrid() {
+        return boatGrid;
+    }
+    
+    /**
+     * @return the persistent ledger of chunks already cleaned under the current rules
+     */
+    public CleanedChunkLedger getCleanedChunkLedger() {
+        return cleanedChunkLedger;
+    }
+    
+    /**
+     * Checks whether a chunk has to be scanned at all
+     * @param chunk A loaded chunk of a world the rules apply to
+     * @return true unless every rule of the world is limited to ships and the chunk holds no End City ship
+     */
+    public boolean isShipCandidate(Chunk chunk) {
+        return !getRules().isShipsOnly(chunk.getWorld()) || isShipChunk(chunk);
+    }
+    
+    /**
+     * Checks the cheap structure index first, then the block classification of the chunks it lets through.
+     * A chunk still being classified counts as holding no ship; it is scanned by {@link #shipFound} if it does.
+     */
+    private boolean isShipChunk(Chunk chunk) {
+        return shipIndex.mayContainShip(chunk) && shipClassifier.isShip(chunk);
+    }
+    
+    /**
+     * Scans a chunk the ship classifier has just found to hold a ship, on the thread owning it
+     */
+    private void shipFound(World world, int chunkX, int chunkZ) {
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            // The chunk was marked as processed when it was skipped during its classification
+            processedChunkCache.invalidate(world, Chunk.getChunkKey(chunkX, chunkZ));
+            scanChunkForEndShips(world.getChunkAt(chunkX, chunkZ));
+        }
+    }
+    
+    /**
+     * Finds the rule the item of a frame falls under, checking ships-only rules against the ship index;
+     * outside ships, a later rule without the ship restriction may still apply
+     * @param itemFrame The item frame to check
+     * @return the matching rule, or null if the item stays
+     */
+    RuleSet.Rule matchFrame(ItemFrame itemFrame) {
+        return getRules().match(itemFrame, shipCheck);
+    }
+    
+    /**
+     * Takes action on an item frame with a targeted item
+     * @param itemFrame The item frame containing the item
+     * @param action The action of the matching rule
+     * @param source What found the item, recorded in the audit log
+     */
+    void removeElytraFromFrame(ItemFrame itemFrame, ElytraAction action, String source) {
+        Location location = itemFrame.getLocation();
+        // Only REMOVE_FRAME cares about boats - if the frame is within 5 blocks of one, we're dealing with an end ship boat
+        boolean nearBoat = action == ElytraAction.REMOVE_FRAME &&
+            boatGrid.isNearBoat(location.getWorld(), location.getX(), location.getY(), location.getZ(), 5);
+        removeElytraFromFrame(itemFrame, action, nearBoat, source);
+    }
+    
+    /**
+     * Takes action on an item frame with a targeted item, with the boat check already done by the caller
+     * (e.g. during generation, when the boats are not in the grid yet)
+     * @param itemFrame The item frame containing the item
+     * @param action The action of the matching rule
+     * @param nearBoat Whether the frame is within 5 blocks of a boat
+     * @param source What found the item, recorded in the audit log
+     */
+    void removeElytraFromFrame(ItemFrame itemFrame, ElytraAction action, boolean nearBoat, String source) {
+        Location location = itemFrame.getLocation();
+        
+        metrics.countRemoval(action);
         
-        // Take action based on configuration
-        switch (elytraAction) {
+        // Take action based on the rule
+        switch (action) {
             case REMOVE_ELYTRA:
                 // Just remove the elytra (original behavior)
                 itemFrame.setItem(null);
-                getLogger().info("Removed elytra from item frame at: " + location);
+                recordRemoval(AuditLog.Type.REMOVED_ELYTRA, location, source);
                 break;
                 
             case REMOVE_FRAME:
                 // Remove the entire item frame if it's in a boat
-                if (isNearBoat) {
+                if (nearBoat) {
                     itemFrame.remove();
-                    getLogger().info("Removed entire item frame (with elytra) at: " + location);
+                    recordRemoval(AuditLog.Type.REMOVED_FRAME, location, source);
                 } else {
                     // If not near a boat, just remove the elytra
                     itemFrame.setItem(null);
-                    getLogger().info("Removed elytra from item frame at: " + location);
+                    recordRemoval(AuditLog.Type.REMOVED_ELYTRA, location, source);
                 }
                 break;
                 
             case REPLACE_WITH_APPLE:
                 // Replace the elytra with an apple
-                itemFrame.setItem(new ItemStack(Material.APPLE));
-                getLogger().info("Replaced elytra with apple in item frame at: " + location);
+                itemFrame.setItem(REPLACEMENT_APPLE);
+                recordRemoval(AuditLog.Type.REPLACED_ELYTRA, location, source);
                 break;
                 
             default:
                 // Fallback - just remove the elytra
                 itemFrame.setItem(null);
-                getLogger().info("Removed elytra from item frame at: " + location + " (default action)");
+                recordRemoval(AuditLog.Type.REMOVED_ELYTRA, location, source);
                 break;
         }
     }
+    
+    /**
+     * Records a removal in the audit log (the message itself is only built by the audit writer)
+     */
+    void recordRemoval(AuditLog.Type type, Location location, String source) {
+        auditLog.record(type, location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), source);
+    }
+    
+    /**
+     * @return the performance metrics of the scan paths and event handlers
+     */
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * @return the pipeline the scan paths hand their removals to
+     */
+    public RemovalPipeline getRemovalPipeline() {
+        return removalPipeline;
+    }
+    
+    /**
+     * @return the queue of delayed chunk and item frame checks
+     */
+    public PendingWorkQueue getPendingWorkQueue() {
+        return pendingWorkQueue;
+    }
+    
+    /**
+     * @return the scheduler abstraction all tasks of the plugin go through
+     */
+    public TaskDispatcher getTaskDispatcher() {
+        return taskDispatcher;
+    }
+    
+    /**
+     * @return true if elytras are removed as End City entities are generated or first loaded
+     */
+    public boolean isInterceptionEnabled() {
+        return interceptionEnabled;
+    }
+    
+    /**
+     * @return true if the delayed chunk checks and periodic sweeps run, either as the main mechanism
+     *         or as a safety net behind generation-time interception
+     */
+    public boolean isSafetyNetEnabled() {
+        return !interceptionEnabled || interceptionSafetyNet;
+    }
+    
+    /**
+     * @return the message shown to players whose targeted item was kept out of a frame, {item} and {world} are replaced
+     */
+    public String getPlayerNotifyMessage() {
+        return playerNotifyMessage;
+    }
+    
+    /**
+     * @return the message shown to players who may not place a frame while holding a targeted item, {item} and {world} are replaced
+     */
+    public String getPlayerNotifyFrameMessage() {
+        return playerNotifyFrameMessage;
+    }
+    
+    /**
+     * @return the per-player cooldown of the feedback on blocked placements
+     */
+    public PlayerThrottle getPlayerThrottle() {
+        return playerThrottle;
+    }
+    
+    /**
+     * @return the audit log of removals and prevented placements
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
 }
\ No newline at end of file
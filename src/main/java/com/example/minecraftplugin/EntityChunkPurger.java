@@ -0,0 +1,290 @@
+package com.example.minecraftplugin;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the removal actions of {@link ElytraRemoverPlugin#removeElytraFromFrame} to the uncompressed NBT
+ * of one entity chunk, as stored in the entities region files. Only the id, position and item of each entity
+ * are decoded; a chunk with something to change is rebuilt by copying the original bytes around the edits.
+ * Stateless apart from its settings, so one instance is shared by every worker thread.
+ */
+final class EntityChunkPurger {
+
+    /**
+     * Outcome for one chunk
+     */
+    static final class Result {
+        int frames;
+        int matches;
+        boolean changed;
+        byte[] rewritten; // only built when asked for
+    }
+
+    /**
+     * What was decoded of one entity of the chunk
+     */
+    private static final class EntityInfo {
+        int start;
+        int end;
+        String id;
+        double x;
+        double y;
+        double z;
+        String itemId;
+        int itemStart = -1;
+        int itemEnd;
+        boolean legacyCount; // item stacks before 1.20.5 store "Count" as a byte
+    }
+
+    /**
+     * A span of the original data to leave out, with the bytes to write in its place (may be empty)
+     */
+    private static final class Edit {
+        final int start;
+        final int end;
+        final byte[] replacement;
+
+        Edit(int start, int end, byte[] replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+
+    private static final byte[] NAME_ENTITIES = ascii("Entities");
+    private static final byte[] NAME_ID = ascii("id");
+    private static final byte[] NAME_POS = ascii("Pos");
+    private static final byte[] NAME_ITEM = ascii("Item");
+    private static final byte[] NAME_LEGACY_COUNT = ascii("Count");
+
+    private static final byte[] APPLE_ITEM = itemTag("minecraft:apple", false);
+    private static final byte[] LEGACY_APPLE_ITEM = itemTag("minecraft:apple", true);
+
+    private final Set<String> targetItems;
+    private final int minY;
+    private final int maxY;
+    private final ElytraAction action;
+
+    /**
+     * @param targetItems Namespaced ids of the items to remove, e.g. minecraft:elytra
+     * @param minY Lowest block Y of the frames to handle
+     * @param maxY Highest block Y of the frames to handle
+     * @param action What to do with a matching frame
+     */
+    EntityChunkPurger(Set<String> targetItems, int minY, int maxY, ElytraAction action) {
+        this.targetItems = targetItems;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.action = action;
+    }
+
+    /**
+     * @param data Uncompressed chunk NBT
+     * @param length Number of valid bytes in data
+     * @param rewrite Whether to build the changed chunk, false for a dry run
+     */
+    Result purge(byte[] data, int length, boolean rewrite) {
+        Result result = new Result();
+        NbtCursor cursor = new NbtCursor(data, length);
+        if (cursor.readByte() != NbtCursor.TAG_COMPOUND) {
+            return result;
+        }
+        cursor.skipString();
+
+        List<EntityInfo> entities = null;
+        int countPosition = -1;
+        int type;
+        while ((type = cursor.readByte()) != NbtCursor.TAG_END) {
+            boolean isEntities = cursor.readNameEquals(NAME_ENTITIES);
+            if (!isEntities || type != NbtCursor.TAG_LIST) {
+                cursor.skipPayload(type);
+                continue;
+            }
+            int elementType = cursor.readByte();
+            countPosition = cursor.position();
+            int count = cursor.readLength();
+            if (elementType != NbtCursor.TAG_COMPOUND) {
+                cursor.skipList(elementType, count);
+                continue;
+            }
+            // The count of a corrupt chunk may be huge; what is left of the data bounds the real one
+            entities = new ArrayList<>(Math.min(count, (length - cursor.position()) / 4));
+            for (int i = 0; i < count; i++) {
+                entities.add(readEntity(cursor));
+            }
+        }
+        if (entities == null) {
+            return result;
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        int removedEntities = 0;
+        for (EntityInfo entity : entities) {
+            if (!isItemFrame(entity.id)) {
+                continue;
+            }
+            result.frames++;
+            if (entity.itemStart < 0 || !targetItems.contains(entity.itemId) ||
+                Math.floor(entity.y) < minY || Math.floor(entity.y) > maxY) {
+                continue;
+            }
+            result.matches++;
+
+            switch (action) {
+                case REMOVE_FRAME:
+                    // Remove the entire item frame if it's in a boat, otherwise just the item
+                    if (isNearBoat(entities, entity)) {
+                        edits.add(new Edit(entity.start, entity.end, new byte[0]));
+                        removedEntities++;
+                    } else {
+                        edits.add(new Edit(entity.itemStart, entity.itemEnd, new byte[0]));
+                    }
+                    break;
+                case REPLACE_WITH_APPLE:
+                    edits.add(new Edit(entity.itemStart, entity.itemEnd, entity.legacyCount ? LEGACY_APPLE_ITEM : APPLE_ITEM));
+                    break;
+                case REMOVE_ELYTRA:
+                default:
+                    edits.add(new Edit(entity.itemStart, entity.itemEnd, new byte[0]));
+                    break;
+            }
+        }
+
+        result.changed = !edits.isEmpty();
+        if (rewrite && result.changed) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+            out.write(data, 0, countPosition);
+            writeInt(out, entities.size() - removedEntities);
+            int copied = countPosition + 4;
+            // Edits are in data order: entities in list order, and at most one edit per entity
+            for (Edit edit : edits) {
+                out.write(data, copied, edit.start - copied);
+                out.write(edit.replacement, 0, edit.replacement.length);
+                copied = edit.end;
+            }
+            out.write(data, copied, length - copied);
+            result.rewritten = out.toByteArray();
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the id, position and item of one entity compound, skipping everything else
+     */
+    private static EntityInfo readEntity(NbtCursor cursor) {
+        EntityInfo entity = new EntityInfo();
+        entity.start = cursor.position();
+        while (true) {
+            int tagStart = cursor.position();
+            int type = cursor.readByte();
+            if (type == NbtCursor.TAG_END) {
+                break;
+            }
+            int nameStart = cursor.position();
+            cursor.skipString();
+            if (type == NbtCursor.TAG_STRING && cursor.nameEquals(nameStart, NAME_ID)) {
+                entity.id = cursor.readString();
+            } else if (type == NbtCursor.TAG_LIST && cursor.nameEquals(nameStart, NAME_POS)) {
+                int elementType = cursor.readByte();
+                int count = cursor.readLength();
+                if (elementType == NbtCursor.TAG_DOUBLE && count == 3) {
+                    entity.x = cursor.readDouble();
+                    entity.y = cursor.readDouble();
+                    entity.z = cursor.readDouble();
+                } else {
+                    cursor.skipList(elementType, count);
+                }
+            } else if (type == NbtCursor.TAG_COMPOUND && cursor.nameEquals(nameStart, NAME_ITEM)) {
+                entity.itemStart = tagStart;
+                readItem(cursor, entity);
+                entity.itemEnd = cursor.position();
+            } else {
+                cursor.skipPayload(type);
+            }
+        }
+        entity.end = cursor.position();
+        return entity;
+    }
+
+    /**
+     * Decodes the id and count format of an item stack compound
+     */
+    private static void readItem(NbtCursor cursor, EntityInfo entity) {
+        int type;
+        while ((type = cursor.readByte()) != NbtCursor.TAG_END) {
+            int nameStart = cursor.position();
+            cursor.skipString();
+            if (type == NbtCursor.TAG_STRING && cursor.nameEquals(nameStart, NAME_ID)) {
+                entity.itemId = cursor.readString();
+            } else {
+                if (type == NbtCursor.TAG_BYTE && cursor.nameEquals(nameStart, NAME_LEGACY_COUNT)) {
+                    entity.legacyCount = true;
+                }
+                cursor.skipPayload(type);
+            }
+        }
+    }
+
+    private static boolean isItemFrame(String id) {
+        return "minecraft:item_frame".equals(id) || "minecraft:glow_item_frame".equals(id);
+    }
+
+    /**
+     * Same 5 block box test as {@link BoatGrid#isNearBoat}, over the boats of the same chunk
+     */
+    private static boolean isNearBoat(List<EntityInfo> entities, EntityInfo frame) {
+        for (EntityInfo entity : entities) {
+            // Every boat and raft type, before and after boats got one entity type per wood
+            if (entity.id != null && (entity.id.endsWith("boat") || entity.id.endsWith("raft")) &&
+                Math.abs(entity.x - frame.x) <= 5 && Math.abs(entity.y - frame.y) <= 5 && Math.abs(entity.z - frame.z) <= 5) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a complete "Item" compound tag holding one of an item
+     */
+    private static byte[] itemTag(String itemId, boolean legacyCount) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(NbtCursor.TAG_COMPOUND);
+        writeString(out, "Item");
+        out.write(NbtCursor.TAG_STRING);
+        writeString(out, "id");
+        writeString(out, itemId);
+        if (legacyCount) {
+            out.write(NbtCursor.TAG_BYTE);
+            writeString(out, "Count");
+            out.write(1);
+        } else {
+            out.write(NbtCursor.TAG_INT);
+            writeString(out, "count");
+            writeInt(out, 1);
+        }
+        out.write(NbtCursor.TAG_END);
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes.length >>> 8);
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.minecraftplugin;
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import io.papermc.paper.event.player.PlayerItemFrameChangeEvent;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Boat;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.hanging.HangingPlaceEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.function.Predicate;
+
+/**
+ * Keeps the {@link ItemFrameRegistry} and the {@link BoatGrid} current from entity add/remove,
+ * chunk entity load/unload and vehicle move events, and invalidates the {@link ProcessedChunkCache}
+ * entry of chunks that unload or whose item frames change. Placing a frame or changing its item also
+ * drops the {@link CleanedChunkLedger} marker of the chunk, so the periodic scans look at it again.
+ */
+public class EntityIndexListener implements Listener {
+
+    private final ItemFrameRegistry registry;
+    private final BoatGrid boatGrid;
+    private final ProcessedChunkCache processedChunkCache;
+    private final CleanedChunkLedger cleanedChunkLedger;
+    private final Predicate<World> worldFilter;
+
+    /**
+     * @param worldFilter Decides which worlds are indexed, checked on every event so rule reloads apply right away
+     */
+    public EntityIndexListener(ItemFrameRegistry registry, BoatGrid boatGrid, ProcessedChunkCache processedChunkCache,
+                               CleanedChunkLedger cleanedChunkLedger, Predicate<World> worldFilter) {
+        this.registry = registry;
+        this.boatGrid = boatGrid;
+        this.processedChunkCache = processedChunkCache;
+        this.cleanedChunkLedger = cleanedChunkLedger;
+        this.worldFilter = worldFilter;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAddToWorld(EntityAddToWorldEvent event) {
+        if (worldFilter.test(event.getEntity().getWorld())) {
+            registry.add(event.getEntity());
+            boatGrid.add(event.getEntity());
+            if (event.getEntity() instanceof ItemFrame) {
+                invalidateChunkOf(event.getEntity());
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemFrameChange(PlayerItemFrameChangeEvent event) {
+        if (worldFilter.test(event.getItemFrame().getWorld())) {
+            invalidateChunkOf(event.getItemFrame());
+            cleanedChunkLedger.invalidate(event.getItemFrame().getChunk());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHangingPlace(HangingPlaceEvent event) {
+        // Entity adds also fire for every frame of a loading chunk, so only real placements drop the ledger marker
+        if (event.getEntity() instanceof ItemFrame && worldFilter.test(event.getEntity().getWorld())) {
+            invalidateChunkOf(event.getEntity());
+            cleanedChunkLedger.invalidate(event.getEntity().getChunk());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemoveFromWorld(EntityRemoveFromWorldEvent event) {
+        // Removals, unloads and world unloads are not filtered: a world may have been indexed under the rules before the last reload
+        registry.remove(event.getEntity());
+        boatGrid.remove(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        if (worldFilter.test(event.getWorld())) {
+            registry.addAll(event.getEntities());
+            boatGrid.addAll(event.getEntities());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        registry.removeChunk(event.getChunk());
+        boatGrid.removeChunk(event.getChunk());
+        processedChunkCache.invalidate(event.getWorld(), event.getChunk().getChunkKey());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        registry.clearWorld(event.getWorld());
+        boatGrid.clearWorld(event.getWorld());
+        processedChunkCache.clearWorld(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onVehicleMove(VehicleMoveEvent event) {
+        if (event.getVehicle() instanceof Boat && worldFilter.test(event.getTo().getWorld())) {
+            boatGrid.move(event.getVehicle(), event.getTo());
+        }
+    }
+
+    private void invalidateChunkOf(Entity entity) {
+        Location location = entity.getLocation();
+        processedChunkCache.invalidate(entity.getWorld(), Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Boat;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.WorldInitEvent;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.LimitedRegion;
+import org.bukkit.generator.WorldInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Removes elytras at the moment End City entities come into existence instead of finding them afterwards:
+ * as a populator while the chunk is generated, and when the entities of an older chunk are first loaded.
+ * Does nothing unless interception is enabled in the configuration.
+ */
+public class GenerationInterceptor extends BlockPopulator implements Listener {
+
+    private final ElytraRemoverPlugin plugin;
+
+    public GenerationInterceptor(ElytraRemoverPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Adds the populator to a world, once; whether the rules apply to it is checked per chunk, so reloads take effect
+     * @param world The world being initialized
+     */
+    public void attach(World world) {
+        if (!world.getPopulators().contains(this)) {
+            world.getPopulators().add(this);
+        }
+    }
+
+    /**
+     * Removes the populator from every world, e.g. when the plugin is disabled
+     */
+    public void detachAll() {
+        for (World world : plugin.getServer().getWorlds()) {
+            world.getPopulators().remove(this);
+        }
+    }
+
+    @EventHandler
+    public void onWorldInit(WorldInitEvent event) {
+        attach(event.getWorld());
+    }
+
+    /**
+     * Runs after the End City pieces of the chunk were placed, while its entities are still being generated
+     */
+    @Override
+    public void populate(WorldInfo worldInfo, Random random, int chunkX, int chunkZ, LimitedRegion limitedRegion) {
+        RuleSet rules = plugin.getRules();
+        if (!plugin.isInterceptionEnabled() || !rules.appliesTo(worldInfo.getName(), worldInfo.getEnvironment())) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        // Boats are not in the boat grid yet, so look them up among the generated entities
+        List<Entity> entities = limitedRegion.getEntities();
+        List<Location> boats = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (entity instanceof Boat) {
+                boats.add(entity.getLocation());
+            }
+        }
+
+        for (Entity entity : entities) {
+            Location location = entity.getLocation();
+            // Only handle the entities of this chunk, the region also covers its neighbours
+            if (!(entity instanceof ItemFrame) || location.getBlockX() >> 4 != chunkX || location.getBlockZ() >> 4 != chunkZ) {
+                continue;
+            }
+
+            // Elytra frames are only generated in End City ships, so the rule's Y range is all that's left to check
+            RuleSet.Rule rule = rules.match(worldInfo.getName(), worldInfo.getEnvironment(), (ItemFrame) entity);
+            if (rule != null) {
+                plugin.removeElytraFromFrame((ItemFrame) entity, rule.getAction(), isNearBoat(boats, location), "generation");
+            }
+        }
+
+        plugin.getMetrics().record(ScanMetrics.Timer.GENERATION_INTERCEPT, start);
+    }
+
+    /**
+     * Handles chunks generated before interception was enabled, as soon as their entities are loaded
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        if (!plugin.isInterceptionEnabled() || !plugin.getRules().appliesTo(event.getWorld())) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        if (!plugin.getCleanedChunkLedger().isClean(event.getChunk()) && plugin.isShipCandidate(event.getChunk())) {
+            boolean removalsQueued = false;
+            for (Entity entity : event.getEntities()) {
+                if (!(entity instanceof ItemFrame) || !entity.isValid()) {
+                    continue;
+                }
+                ItemFrame frame = (ItemFrame) entity;
+                if (plugin.getRemovalPipeline().isHandled(frame)) {
+                    removalsQueued = true;
+                } else if (plugin.matchFrame(frame) != null) {
+                    plugin.getRemovalPipeline().submit(frame, "entities load");
+                    removalsQueued = true;
+                }
+            }
+            // Queued removals are only applied with the next batch; a later scan marks the chunk once they were
+            if (!removalsQueued) {
+                plugin.getCleanedChunkLedger().markClean(event.getChunk());
+            }
+        }
+
+        plugin.getMetrics().record(ScanMetrics.Timer.LISTENER_ENTITIES_LOAD, start);
+    }
+
+    /**
+     * Same 5 block box test as {@link BoatGrid#isNearBoat}
+     */
+    private static boolean isNearBoat(List<Location> boats, Location location) {
+        for (Location boat : boats) {
+            if (Math.abs(boat.getX() - location.getX()) <= 5 &&
+                Math.abs(boat.getY() - location.getY()) <= 5 &&
+                Math.abs(boat.getZ() - location.getZ()) <= 5) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.ItemFrame;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live index of the item frames in the worlds the rules apply to, grouped per world and per chunk.
+ * It is kept current by {@link EntityIndexListener}, so scans can iterate the few
+ * hundred indexed frames instead of every entity in every loaded chunk.
+ */
+public class ItemFrameRegistry {
+
+    // World UID -> chunk key -> entity ID -> frame
+    private final Map<UUID, Map<Long, Map<Integer, ItemFrame>>> frames = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an entity to the index if it is an item frame
+     * @param entity The entity that was added to the world
+     */
+    public void add(Entity entity) {
+        if (entity.getType() != EntityType.ITEM_FRAME) {
+            return;
+        }
+
+        Location location = entity.getLocation();
+        long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        frames.computeIfAbsent(entity.getWorld().getUID(), uid -> new ConcurrentHashMap<>())
+              .computeIfAbsent(chunkKey, key -> new ConcurrentHashMap<>())
+              .put(entity.getEntityId(), (ItemFrame) entity);
+    }
+
+    /**
+     * Removes an entity from the index
+     * @param entity The entity that was removed from the world
+     */
+    public void remove(Entity entity) {
+        if (entity.getType() != EntityType.ITEM_FRAME) {
+            return;
+        }
+
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(entity.getWorld().getUID());
+        if (worldFrames == null) {
+            return;
+        }
+
+        Location location = entity.getLocation();
+        long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        worldFrames.computeIfPresent(chunkKey, (key, chunkFrames) -> {
+            chunkFrames.remove(entity.getEntityId());
+            return chunkFrames.isEmpty() ? null : chunkFrames;
+        });
+    }
+
+    /**
+     * Indexes every item frame of a chunk whose entities just loaded
+     * @param entities The entities of the chunk
+     */
+    public void addAll(Collection<? extends Entity> entities) {
+        for (Entity entity : entities) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Drops every indexed frame of a chunk whose entities are unloading
+     * @param chunk The chunk being unloaded
+     */
+    public void removeChunk(Chunk chunk) {
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(chunk.getWorld().getUID());
+        if (worldFrames != null) {
+            worldFrames.remove(chunk.getChunkKey());
+        }
+    }
+
+    /**
+     * Drops every indexed frame of a world
+     * @param world The world to forget
+     */
+    public void clearWorld(World world) {
+        frames.remove(world.getUID());
+    }
+
+    /**
+     * @param world The world to look up
+     * @return the keys of the chunks that currently hold at least one item frame
+     */
+    public Set<Long> getChunkKeys(World world) {
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(world.getUID());
+        return worldFrames == null ? Collections.emptySet() : worldFrames.keySet();
+    }
+
+    /**
+     * @param world The world to look up
+     * @return a snapshot of the keys of the chunks that currently hold at least one item frame
+     */
+    public long[] getChunkKeyArray(World world) {
+        Set<Long> chunkKeys = getChunkKeys(world);
+        long[] snapshot = new long[chunkKeys.size()];
+        int index = 0;
+        for (Long chunkKey : chunkKeys) {
+            // The key set may grow while it is copied
+            if (index == snapshot.length) {
+                break;
+            }
+            snapshot[index++] = chunkKey;
+        }
+        return index == snapshot.length ? snapshot : Arrays.copyOf(snapshot, index);
+    }
+
+    /**
+     * @param world The world to look up
+     * @param chunkKey The chunk key, as returned by {@link Chunk#getChunkKey()}
+     * @return the item frames indexed in that chunk
+     */
+    public Collection<ItemFrame> getFrames(World world, long chunkKey) {
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(world.getUID());
+        if (worldFrames == null) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, ItemFrame> chunkFrames = worldFrames.get(chunkKey);
+        return chunkFrames == null ? Collections.emptyList() : chunkFrames.values();
+    }
+
+    /**
+     * @param world The world to count
+     * @return the number of item frames indexed in the world
+     */
+    public int size(World world) {
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(world.getUID());
+        if (worldFrames == null) {
+            return 0;
+        }
+
+        int size = 0;
+        for (Map<Integer, ItemFrame> chunkFrames : worldFrames.values()) {
+            size += chunkFrames.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks the index of a world against a real entity scan and resyncs it; not for regionized servers,
+     * where no thread owns every entity of a world
+     * @param world The world to verify
+     * @return the differences that were found
+     */
+    public Verification verify(World world) {
+        Set<Integer> actual = new HashSet<>();
+        for (ItemFrame frame : world.getEntitiesByClass(ItemFrame.class)) {
+            if (frame.getType() == EntityType.ITEM_FRAME) {
+                actual.add(frame.getEntityId());
+            }
+        }
+
+        Set<Integer> indexed = new HashSet<>();
+        Map<Long, Map<Integer, ItemFrame>> worldFrames = frames.get(world.getUID());
+        if (worldFrames != null) {
+            for (Map<Integer, ItemFrame> chunkFrames : worldFrames.values()) {
+                indexed.addAll(chunkFrames.keySet());
+            }
+        }
+
+        int missing = 0;
+        for (Integer id : actual) {
+            if (!indexed.contains(id)) {
+                missing++;
+            }
+        }
+
+        int stale = 0;
+        for (Integer id : indexed) {
+            if (!actual.contains(id)) {
+                stale++;
+            }
+        }
+
+        // Rebuild the world's index from the real scan so any drift is repaired
+        if (missing > 0 || stale > 0) {
+            clearWorld(world);
+            addAll(world.getEntitiesByClass(ItemFrame.class));
+        }
+
+        return new Verification(indexed.size(), actual.size(), missing, stale);
+    }
+
+    /**
+     * Result of comparing the index of a world with a real entity scan
+     */
+    public static final class Verification {
+        public final int indexed;
+        public final int actual;
+        public final int missing;
+        public final int stale;
+
+        Verification(int indexed, int actual, int missing, int stale) {
+            this.indexed = indexed;
+            this.actual = actual;
+            this.missing = missing;
+            this.stale = stale;
+        }
+
+        public boolean isConsistent() {
+            return missing == 0 && stale == 0;
+        }
+    }
+}
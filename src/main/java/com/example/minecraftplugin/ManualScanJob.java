@@ -0,0 +1,237 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * A manual scan started by /elytraremover scan, worked off through the {@link ScanScheduler}.
+ * Every item frame found is written to a CSV report in the background instead of being sent to chat;
+ * the sender gets a progress line every few seconds and one summary at the end.
+ * In dry-run mode nothing is removed, the report shows what would have been. The job can be cancelled.
+ */
+public class ManualScanJob {
+
+    private static final String CSV_HEADER = "world,x,y,z,item,rule,action";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Ticks between two progress lines, and between two report writes
+    private static final long PROGRESS_TICKS = 20L * 5;
+    private static final long WRITE_TICKS = 10L;
+
+    private final ElytraRemoverPlugin plugin;
+    private final CommandSender sender;
+    private final boolean dryRun;
+    private final File reportFile;
+    private final long startedAt = System.nanoTime();
+
+    // Filled from region threads, drained by the report writer
+    private final Queue<String> reportLines = new ConcurrentLinkedQueue<>();
+    private final LongAdder totalChunks = new LongAdder();
+    private final LongAdder visitedChunks = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final AtomicLongArray actionCounts = new AtomicLongArray(ElytraAction.values().length);
+
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+    private boolean reportStarted; // writer only
+    private TaskDispatcher.TaskHandle progressTask;
+    private TaskDispatcher.TaskHandle writerTask;
+
+    /**
+     * @param plugin The plugin
+     * @param sender Who started the scan, told about its progress and result
+     * @param dryRun Whether matching items are only reported, not removed
+     */
+    public ManualScanJob(ElytraRemoverPlugin plugin, CommandSender sender, boolean dryRun) {
+        this.plugin = plugin;
+        this.sender = sender;
+        this.dryRun = dryRun;
+        this.reportFile = new File(new File(plugin.getDataFolder(), "reports"),
+            "scan-" + LocalDateTime.now().format(FILE_TIME) + (dryRun ? "-dry-run" : "") + ".csv");
+    }
+
+    /**
+     * Queues the scan with the scan scheduler and starts the progress and report tasks
+     * @return false if a manual scan is already queued or running
+     */
+    public boolean start(ScanScheduler scheduler, ItemFrameRegistry registry) {
+        boolean queued = scheduler.submit("manual", world -> {
+            long[] chunkKeys = registry.getChunkKeyArray(world);
+            totalChunks.add(chunkKeys.length);
+            return chunkKeys;
+        }, (world, chunkKey) -> visit(registry, world, chunkKey), this::complete);
+        if (!queued) {
+            return false;
+        }
+
+        TaskDispatcher dispatcher = plugin.getTaskDispatcher();
+        progressTask = dispatcher.runGlobalTimer(this::sendProgress, PROGRESS_TICKS, PROGRESS_TICKS);
+        writerTask = dispatcher.runAsyncTimer(this::writeReport, WRITE_TICKS, WRITE_TICKS);
+        return true;
+    }
+
+    /**
+     * Stops the scan; chunks not visited yet are skipped, and the summary says the scan was cancelled
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks every indexed item frame of a chunk, on the thread owning the chunk
+     */
+    private void visit(ItemFrameRegistry registry, World world, long chunkKey) {
+        // A visit handed to a region that ran late may arrive after the pass was closed
+        if (cancelled || finished) {
+            return;
+        }
+        int chunkX = (int) chunkKey;
+        int chunkZ = (int) (chunkKey >> 32);
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return;
+        }
+        visitedChunks.increment();
+
+        boolean removalsQueued = false;
+        for (ItemFrame frame : registry.getFrames(world, chunkKey)) {
+            if (!frame.isValid()) {
+                continue;
+            }
+            frames.increment();
+            ItemStack item = frame.getItem();
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+
+            Location location = frame.getLocation();
+            RuleSet.Rule rule = plugin.matchFrame(frame);
+            if (rule != null) {
+                matches.increment();
+                actionCounts.incrementAndGet(rule.getAction().ordinal());
+                if (!dryRun) {
+                    plugin.getRemovalPipeline().submit(frame, "manual scan");
+                    removalsQueued = true;
+                }
+            }
+            reportLines.add(world.getName() + ',' + location.getBlockX() + ',' + location.getBlockY() + ',' + location.getBlockZ() + ',' +
+                            item.getType().name() + ',' + (rule == null ? "" : rule.getName()) + ',' +
+                            (rule == null ? "" : (dryRun ? "WOULD_" : "") + rule.getAction().name()));
+        }
+
+        // Queued removals are only applied with the next batch; a later scan marks the chunk once they were
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        if (!dryRun && !removalsQueued && chunk.isEntitiesLoaded()) {
+            plugin.getCleanedChunkLedger().markClean(chunk);
+        }
+    }
+
+    /**
+     * Called by the scheduler once every chunk was visited; the summary follows the last report write
+     */
+    private void complete() {
+        if (progressTask != null) {
+            progressTask.cancel();
+        }
+        finished = true;
+    }
+
+    private void sendProgress() {
+        if (!finished) {
+            tell("§7Scan progress: " + visitedChunks.sum() + "/" + totalChunks.sum() + " chunks, " +
+                               frames.sum() + " item frames, " + matches.sum() + (dryRun ? " would be removed" : " removed"));
+        }
+    }
+
+    /**
+     * Appends the queued report lines to the report file, off the tick threads;
+     * once the scan is complete and everything is written, hands the summary to the global thread
+     */
+    private void writeReport() {
+        boolean done = finished;
+        if (!reportLines.isEmpty()) {
+            StringBuilder batch = new StringBuilder(4096);
+            String line;
+            while ((line = reportLines.poll()) != null) {
+                batch.append(line).append('\n');
+            }
+            try {
+                Files.createDirectories(reportFile.getParentFile().toPath());
+                try (BufferedWriter out = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (!reportStarted) {
+                        out.write(CSV_HEADER);
+                        out.newLine();
+                        reportStarted = true;
+                    }
+                    out.append(batch);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not write scan report " + reportFile.getName(), e);
+            }
+        }
+
+        // Lines queued before the scan completed are all written by now
+        if (done) {
+            writerTask.cancel();
+            plugin.getTaskDispatcher().runGlobalLater(this::sendSummary, 1L);
+        }
+    }
+
+    private void sendSummary() {
+        long millis = (System.nanoTime() - startedAt) / 1_000_000L;
+        List<String> lines = new ArrayList<>();
+        lines.add((cancelled ? "§eScan cancelled" : "§aScan complete") + " after " + millis / 1000 + "." + millis % 1000 / 100 + "s" +
+                  (dryRun ? " (dry run, nothing was removed)" : "") + ".");
+        lines.add("§aChecked " + visitedChunks.sum() + " chunks, found " + frames.sum() + " item frames, " +
+                  matches.sum() + (dryRun ? " items would have been removed." : " items removed."));
+
+        StringBuilder actions = new StringBuilder();
+        for (ElytraAction action : ElytraAction.values()) {
+            long count = actionCounts.get(action.ordinal());
+            if (count > 0) {
+                actions.append(actions.length() == 0 ? "" : ", ").append(action).append('=').append(count);
+            }
+        }
+        if (actions.length() > 0) {
+            lines.add("§a" + (dryRun ? "Actions that would be taken: " : "Actions taken: ") + actions);
+        }
+        if (reportStarted) {
+            lines.add("§7Details: plugins/" + plugin.getDataFolder().getName() + "/reports/" + reportFile.getName());
+        }
+        tell(lines.toArray(new String[0]));
+    }
+
+    /**
+     * Sends lines to the sender; a player on a regionized server is told on the thread owning it
+     */
+    private void tell(String... lines) {
+        TaskDispatcher dispatcher = plugin.getTaskDispatcher();
+        if (sender instanceof Entity && !dispatcher.isOwnedByCurrentThread((Entity) sender)) {
+            dispatcher.runAtEntityLater((Entity) sender, () -> sender.sendMessage(lines), 1L);
+        } else {
+            sender.sendMessage(lines);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.minecraftplugin;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only reader over uncompressed NBT data. Nothing is decoded unless asked for:
+ * tags are skipped by their length, and names are compared byte by byte without building strings,
+ * so only the few tags the caller cares about cost anything. Only uses the JDK, for the offline tool.
+ */
+final class NbtCursor {
+
+    static final int TAG_END = 0;
+    static final int TAG_BYTE = 1;
+    static final int TAG_SHORT = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_FLOAT = 5;
+    static final int TAG_DOUBLE = 6;
+    static final int TAG_BYTE_ARRAY = 7;
+    static final int TAG_STRING = 8;
+    static final int TAG_LIST = 9;
+    static final int TAG_COMPOUND = 10;
+    static final int TAG_INT_ARRAY = 11;
+    static final int TAG_LONG_ARRAY = 12;
+
+    private final byte[] data;
+    private final int limit;
+    private int position;
+
+    NbtCursor(byte[] data, int limit) {
+        this.data = data;
+        this.limit = limit;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int readByte() {
+        check(1);
+        return data[position++];
+    }
+
+    int readUnsignedShort() {
+        check(2);
+        int value = (data[position] & 0xFF) << 8 | data[position + 1] & 0xFF;
+        position += 2;
+        return value;
+    }
+
+    int readInt() {
+        check(4);
+        int value = (data[position] & 0xFF) << 24 | (data[position + 1] & 0xFF) << 16 |
+                    (data[position + 2] & 0xFF) << 8 | data[position + 3] & 0xFF;
+        position += 4;
+        return value;
+    }
+
+    long readLong() {
+        return (long) readInt() << 32 | readInt() & 0xFFFFFFFFL;
+    }
+
+    double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads a string (names, ids); fine for the ASCII identifiers the tool looks at
+     */
+    String readString() {
+        int length = readUnsignedShort();
+        check(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a tag name and compares it with an ASCII name, without allocating
+     * @return true if the name matches
+     */
+    boolean readNameEquals(byte[] name) {
+        int length = readUnsignedShort();
+        check(length);
+        boolean equal = length == name.length;
+        for (int i = 0; equal && i < length; i++) {
+            equal = data[position + i] == name[i];
+        }
+        position += length;
+        return equal;
+    }
+
+    /**
+     * Compares the tag name stored at an earlier position with an ASCII name; the cursor does not move
+     * @param nameStart Position of the name's length prefix
+     */
+    boolean nameEquals(int nameStart, byte[] name) {
+        int length = (data[nameStart] & 0xFF) << 8 | data[nameStart + 1] & 0xFF;
+        if (length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[nameStart + 2 + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void skipString() {
+        int length = readUnsignedShort();
+        skip(length);
+    }
+
+    /**
+     * Skips the payload of a tag whose type and name were already read
+     */
+    void skipPayload(int type) {
+        switch (type) {
+            case TAG_BYTE:
+                skip(1);
+                break;
+            case TAG_SHORT:
+                skip(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skip(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skip(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                skip(readLength());
+                break;
+            case TAG_STRING:
+                skipString();
+                break;
+            case TAG_LIST: {
+                int elementType = readByte();
+                int count = readLength();
+                skipList(elementType, count);
+                break;
+            }
+            case TAG_COMPOUND:
+                skipCompound();
+                break;
+            case TAG_INT_ARRAY:
+                skip(readLength() * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                skip(readLength() * 8L);
+                break;
+            default:
+                throw new IllegalStateException("Unknown NBT tag type " + type + " at " + position);
+        }
+    }
+
+    /**
+     * Skips the elements of a list whose element type and length were already read
+     */
+    void skipList(int elementType, int count) {
+        switch (elementType) {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                skip(count);
+                break;
+            case TAG_SHORT:
+                skip(count * 2L);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skip(count * 4L);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skip(count * 8L);
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    skipPayload(elementType);
+                }
+        }
+    }
+
+    /**
+     * Skips the rest of a compound, up to and including its end tag
+     */
+    void skipCompound() {
+        int type;
+        while ((type = readByte()) != TAG_END) {
+            skipString();
+            skipPayload(type);
+        }
+    }
+
+    /**
+     * Reads an array or list length, rejecting negative values from corrupt data
+     */
+    int readLength() {
+        int length = readInt();
+        if (length < 0) {
+            throw new IllegalStateException("Negative NBT length at " + position);
+        }
+        return length;
+    }
+
+    private void skip(long length) {
+        check(length);
+        position += (int) length;
+    }
+
+    private void check(long length) {
+        if (position + length > limit) {
+            throw new IllegalStateException("Truncated NBT data at " + position);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.minecraftplugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Command line tool that cleans a whole End world while the server is stopped, by rewriting its entities
+ * region files directly: {@code java -jar ElytraRemover.jar <world folder> [options]}.
+ * Region files are processed in parallel on a fork-join pool. Only the JDK is needed, so it runs
+ * without the server on the classpath.
+ */
+public final class OfflinePurgeTool {
+
+    private OfflinePurgeTool() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * @return the process exit code: 0 on success, 1 for bad arguments or a running server, 2 if some region files failed
+     */
+    static int run(String[] args) {
+        File world = null;
+        boolean dryRun = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Set<String> items = new HashSet<>();
+        int minY = Integer.MIN_VALUE;
+        int maxY = Integer.MAX_VALUE;
+        ElytraAction action = ElytraAction.REPLACE_WITH_APPLE;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--dry-run":
+                        dryRun = true;
+                        break;
+                    case "--threads":
+                        threads = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--items":
+                        for (String item : args[++i].split(",")) {
+                            String id = item.trim().toLowerCase(Locale.ROOT);
+                            items.add(id.indexOf(':') < 0 ? "minecraft:" + id : id);
+                        }
+                        break;
+                    case "--min-y":
+                        minY = Integer.parseInt(args[++i]);
+                        break;
+                    case "--max-y":
+                        maxY = Integer.parseInt(args[++i]);
+                        break;
+                    case "--action":
+                        action = ElytraAction.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        break;
+                    default:
+                        if (args[i].startsWith("--") || world != null) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        world = new File(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            world = null;
+        }
+        if (world == null) {
+            printUsage();
+            return 1;
+        }
+        if (items.isEmpty()) {
+            items.add("minecraft:elytra");
+        }
+
+        File entitiesFolder = findEntitiesFolder(world);
+        if (entitiesFolder == null) {
+            System.err.println("No entities region files found in " + world + " (looked in DIM1/entities and entities)");
+            return 1;
+        }
+        File[] regionFiles = entitiesFolder.listFiles((dir, name) -> name.startsWith("r.") && name.endsWith(".mca"));
+        if (regionFiles == null || regionFiles.length == 0) {
+            System.err.println("No region files in " + entitiesFolder);
+            return 1;
+        }
+        Arrays.sort(regionFiles);
+
+        // Rewriting files the server still has open would corrupt them
+        if (!dryRun && isWorldLocked(world)) {
+            System.err.println("The world is in use (session.lock is held) - stop the server first, or use --dry-run");
+            return 1;
+        }
+
+        System.out.println((dryRun ? "Dry run: " : "") + "purging " + items + " from item frames" +
+                           (minY != Integer.MIN_VALUE || maxY != Integer.MAX_VALUE ? " between Y " + minY + " and " + maxY : "") +
+                           " with " + action + " in " + regionFiles.length + " region files of " + entitiesFolder +
+                           " on " + threads + " threads");
+
+        RegionFilePurger purger = new RegionFilePurger(new EntityChunkPurger(Set.copyOf(items), minY, maxY, action), dryRun);
+        LongAdder chunks = new LongAdder();
+        LongAdder frames = new LongAdder();
+        LongAdder matches = new LongAdder();
+        LongAdder rewritten = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int total = regionFiles.length;
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> Arrays.stream(regionFiles).parallel().forEach(file -> {
+                try {
+                    RegionFilePurger.Stats stats = purger.purge(file.toPath());
+                    chunks.add(stats.chunks);
+                    frames.add(stats.frames);
+                    matches.add(stats.matches);
+                    rewritten.add(stats.rewritten);
+                    skipped.add(stats.skipped);
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Could not purge " + file.getName() + ": " + e.getMessage());
+                }
+                // One progress line per tenth of the files
+                int finished = done.incrementAndGet();
+                if (finished * 10 / total != (finished - 1) * 10 / total) {
+                    System.out.println("... " + finished * 100 / total + "% (" + finished + "/" + total + " region files)");
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        } catch (ExecutionException e) {
+            System.err.println("Purge failed: " + e.getCause());
+            return 2;
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.println(String.format(Locale.ROOT, "Read %d chunks in %.1f s (%.0f chunks/s): %d item frames, %d matching, %d chunks %s, %d chunks skipped",
+            chunks.sum(), seconds, chunks.sum() / seconds, frames.sum(), matches.sum(),
+            rewritten.sum(), dryRun ? "would be rewritten" : "rewritten", skipped.sum()));
+        return failed.get() > 0 ? 2 : 0;
+    }
+
+    private static File findEntitiesFolder(File world) {
+        File[] candidates = {
+            new File(world, "DIM1/entities"),
+            new File(world, "entities"),
+            world
+        };
+        for (File folder : candidates) {
+            String[] files = folder.list((dir, name) -> name.startsWith("r.") && name.endsWith(".mca"));
+            if (files != null && files.length > 0) {
+                return folder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if a running server holds the world's session.lock
+     */
+    private static boolean isWorldLocked(File world) {
+        File lockFile = new File(world, "session.lock");
+        if (!lockFile.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException | IOException e) {
+            return true;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java -jar ElytraRemover.jar <world folder> [options]");
+        System.err.println("  --dry-run            only report what would be removed, write nothing");
+        System.err.println("  --threads <n>        region files processed in parallel (default: number of CPUs)");
+        System.err.println("  --items <ids>        comma separated item ids to remove (default: minecraft:elytra)");
+        System.err.println("  --min-y <y>          lowest Y of the item frames to handle");
+        System.err.println("  --max-y <y>          highest Y of the item frames to handle");
+        System.err.println("  --action <action>    REMOVE_ELYTRA, REMOVE_FRAME or REPLACE_WITH_APPLE (default)");
+        System.err.println("The server must be stopped. Back up the world first.");
+    }
+}
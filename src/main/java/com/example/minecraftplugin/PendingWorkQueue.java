@@ -0,0 +1,211 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Deduplicating queue of delayed chunk and entity checks, drained once per tick.
+ * Chunk load, chunk populate and entity spawn events only record what has to be checked and when;
+ * repeated events for the same chunk or entity are coalesced into one entry that runs after the
+ * longest of their delays. Entries are keyed on packed chunk coordinates and entity IDs, bucketed
+ * on a timing wheel by due tick, and capped in number. Chunks that unloaded before their turn are dropped.
+ */
+public class PendingWorkQueue implements Runnable {
+
+    // Delays are capped below the wheel size, so an entry never waits more than one turn of the wheel
+    private static final int WHEEL_SIZE = 256;
+    static final int MAX_DELAY_TICKS = WHEEL_SIZE - 1;
+
+    // Bits of each chunk coordinate in a packed chunk key (enough for +/- 2M chunks, beyond the world border)
+    private static final int COORDINATE_BITS = 22;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    /**
+     * What is done for a chunk once its delay elapsed
+     */
+    @FunctionalInterface
+    public interface ChunkTask {
+        void run(Chunk chunk);
+    }
+
+    private final ScanMetrics metrics;
+    private final TaskDispatcher dispatcher;
+    private final ChunkTask chunkTask;
+    private final Consumer<Entity> entityTask;
+
+    // Index of each world in the packed chunk keys
+    private final List<UUID> worldIds = new CopyOnWriteArrayList<>();
+
+    private final TimedKeyTable chunks;
+    private final TimedKeyTable entities;
+    private int chunkLoadDelayTicks = 10;
+    private int chunkPopulateDelayTicks = 20;
+    private int entitySpawnDelayTicks = 5;
+    private long tick;
+
+    // Reused between ticks to collect the due entries
+    private final TimedKeyTable.Due dueChunks = new TimedKeyTable.Due();
+    private final TimedKeyTable.Due dueEntities = new TimedKeyTable.Due();
+
+    public PendingWorkQueue(ScanMetrics metrics, TaskDispatcher dispatcher, ChunkTask chunkTask, Consumer<Entity> entityTask, int maxEntries) {
+        this.metrics = metrics;
+        this.dispatcher = dispatcher;
+        this.chunkTask = chunkTask;
+        this.entityTask = entityTask;
+        this.chunks = new TimedKeyTable(maxEntries, WHEEL_SIZE, false);
+        this.entities = new TimedKeyTable(maxEntries, WHEEL_SIZE, true);
+    }
+
+    /**
+     * Updates the delay windows and the cap on pending chunks and, separately, pending entities
+     * @param maxEntries Further events are dropped once this many entries are pending
+     * @param chunkLoadDelayTicks Delay between a chunk load and its check
+     * @param chunkPopulateDelayTicks Delay between a chunk populate and its check
+     * @param entitySpawnDelayTicks Delay between an item frame spawn and its check
+     */
+    public synchronized void configure(int maxEntries, int chunkLoadDelayTicks, int chunkPopulateDelayTicks, int entitySpawnDelayTicks) {
+        this.chunkLoadDelayTicks = chunkLoadDelayTicks;
+        this.chunkPopulateDelayTicks = chunkPopulateDelayTicks;
+        this.entitySpawnDelayTicks = entitySpawnDelayTicks;
+        chunks.resize(maxEntries);
+        entities.resize(maxEntries);
+    }
+
+    /**
+     * Queues the check of a chunk that was loaded
+     */
+    public void chunkLoaded(Chunk chunk) {
+        scheduleChunk(chunk.getWorld(), chunk.getX(), chunk.getZ(), chunkLoadDelayTicks);
+    }
+
+    /**
+     * Queues the check of a chunk that was populated
+     */
+    public void chunkPopulated(Chunk chunk) {
+        scheduleChunk(chunk.getWorld(), chunk.getX(), chunk.getZ(), chunkPopulateDelayTicks);
+    }
+
+    /**
+     * Queues the check of an item frame that spawned
+     */
+    public void entitySpawned(Entity entity) {
+        scheduleEntity(entity, entitySpawnDelayTicks);
+    }
+
+    /**
+     * Queues a check of a chunk, coalesced with any check of the same chunk already pending
+     * @param world The world of the chunk
+     * @param chunkX X coordinate of the chunk
+     * @param chunkZ Z coordinate of the chunk
+     * @param delayTicks Ticks to wait before the check
+     */
+    public synchronized void scheduleChunk(World world, int chunkX, int chunkZ, int delayTicks) {
+        int worldIndex = worldIds.indexOf(world.getUID());
+        if (worldIndex < 0) {
+            worldIndex = worldIds.size();
+            worldIds.add(world.getUID());
+        }
+        count(chunks.schedule(packChunkKey(worldIndex, chunkX, chunkZ), null, dueTick(delayTicks)));
+    }
+
+    /**
+     * Packs a world index and chunk coordinates into one key
+     */
+    static long packChunkKey(int worldIndex, int chunkX, int chunkZ) {
+        return ((long) worldIndex << (COORDINATE_BITS * 2)) |
+               ((chunkX & COORDINATE_MASK) << COORDINATE_BITS) |
+               (chunkZ & COORDINATE_MASK);
+    }
+
+    static int worldIndex(long key) {
+        return (int) (key >>> (COORDINATE_BITS * 2));
+    }
+
+    // Sign-extend the packed coordinates
+    static int chunkX(long key) {
+        return (int) ((key << (64 - COORDINATE_BITS * 2)) >> (64 - COORDINATE_BITS));
+    }
+
+    static int chunkZ(long key) {
+        return (int) ((key << (64 - COORDINATE_BITS)) >> (64 - COORDINATE_BITS));
+    }
+
+    /**
+     * Queues a check of an entity, coalesced with any check of the same entity already pending
+     * @param entity The entity
+     * @param delayTicks Ticks to wait before the check
+     */
+    public synchronized void scheduleEntity(Entity entity, int delayTicks) {
+        count(entities.schedule(entity.getEntityId(), entity, dueTick(delayTicks)));
+    }
+
+    /**
+     * @return the number of chunks and entities waiting for their check
+     */
+    public synchronized int size() {
+        return chunks.size() + entities.size();
+    }
+
+    private long dueTick(int delayTicks) {
+        return tick + Math.max(1, Math.min(MAX_DELAY_TICKS, delayTicks));
+    }
+
+    private void count(int result) {
+        if (result == 0) {
+            metrics.increment(ScanMetrics.Counter.QUEUE_COALESCED);
+        } else if (result < 0) {
+            metrics.increment(ScanMetrics.Counter.QUEUE_DROPPED_FULL);
+        }
+    }
+
+    @Override
+    public void run() {
+        // Take the due entries under the lock, but run them outside of it
+        synchronized (this) {
+            tick++;
+            chunks.drain(tick, dueChunks);
+            entities.drain(tick, dueEntities);
+        }
+
+        for (int i = 0; i < dueChunks.size; i++) {
+            long key = dueChunks.keys[i];
+            World world = Bukkit.getWorld(worldIds.get(worldIndex(key)));
+            if (world != null) {
+                runChunk(world, chunkX(key), chunkZ(key));
+            }
+        }
+        for (int i = 0; i < dueEntities.size; i++) {
+            runEntity((Entity) dueEntities.values[i]);
+        }
+        dueChunks.clear();
+        dueEntities.clear();
+    }
+
+    private void runChunk(World world, int chunkX, int chunkZ) {
+        dispatcher.runAtChunk(world, chunkX, chunkZ, () -> {
+            // Drop the work if the chunk unloaded before its turn; it is checked again when it loads
+            if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                metrics.increment(ScanMetrics.Counter.QUEUE_DROPPED_UNLOADED);
+                return;
+            }
+            chunkTask.run(world.getChunkAt(chunkX, chunkZ));
+        });
+    }
+
+    private void runEntity(Entity entity) {
+        if (dispatcher.isOwnedByCurrentThread(entity)) {
+            if (entity.isValid()) {
+                entityTask.accept(entity);
+            }
+        } else {
+            dispatcher.runAtEntityLater(entity, () -> entityTask.accept(entity), 1L);
+        }
+    }
+}
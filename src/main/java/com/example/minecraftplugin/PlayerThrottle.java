@@ -0,0 +1,129 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Location;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player cooldown for the feedback on blocked placements.
+ * The first blocked attempt of a player opens a window: it is audited and the player is told once.
+ * Further attempts within the window are only counted, and when the window closes a single audit
+ * event summarizes them, so spam-clicking or auto-clicker macros cause neither one log line nor one
+ * chat packet per click. A window is a handful of fields, dropped as soon as it has closed.
+ */
+public class PlayerThrottle implements Runnable {
+
+    /**
+     * Attempts of one player within the current window
+     */
+    private static final class Window {
+        final long openedAt;
+        final String playerName;
+        final AuditLog.Type type;
+        final String world;
+        final int x;
+        final int y;
+        final int z;
+        int suppressed;
+
+        Window(long openedAt, String playerName, AuditLog.Type type, Location location) {
+            this.openedAt = openedAt;
+            this.playerName = playerName;
+            this.type = type;
+            this.world = location.getWorld().getName();
+            this.x = location.getBlockX();
+            this.y = location.getBlockY();
+            this.z = location.getBlockZ();
+        }
+    }
+
+    private final Map<UUID, Window> windows = new ConcurrentHashMap<>();
+    private final AuditLog auditLog;
+    private final ScanMetrics metrics;
+
+    private volatile long windowMillis;
+
+    public PlayerThrottle(AuditLog auditLog, ScanMetrics metrics, long windowMillis) {
+        this.auditLog = auditLog;
+        this.metrics = metrics;
+        configure(windowMillis);
+    }
+
+    /**
+     * @param windowMillis Length of a window; 0 notifies and audits every attempt
+     */
+    public void configure(long windowMillis) {
+        this.windowMillis = Math.max(0L, windowMillis);
+    }
+
+    /**
+     * Counts a blocked attempt
+     * @param playerId The player
+     * @param playerName Name of the player, for the audit log
+     * @param type The kind of attempt
+     * @param location Where the attempt happened
+     * @return true if this attempt opened a window, so the caller audits it and notifies the player
+     */
+    public boolean tryAcquire(UUID playerId, String playerName, AuditLog.Type type, Location location) {
+        long now = System.currentTimeMillis();
+        boolean[] acquired = new boolean[1];
+        windows.compute(playerId, (id, window) -> {
+            if (window != null && now - window.openedAt < windowMillis) {
+                window.suppressed++;
+                return window;
+            }
+            if (window != null) {
+                summarize(window);
+            }
+            acquired[0] = true;
+            return new Window(now, playerName, type, location);
+        });
+        if (!acquired[0]) {
+            metrics.increment(ScanMetrics.Counter.NOTIFICATIONS_THROTTLED);
+        }
+        return acquired[0];
+    }
+
+    /**
+     * Closes the windows that have run out, summarizing their suppressed attempts
+     */
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        for (UUID playerId : windows.keySet()) {
+            windows.computeIfPresent(playerId, (id, window) -> {
+                if (now - window.openedAt < windowMillis) {
+                    return window;
+                }
+                summarize(window);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Closes every window, e.g. when the plugin is disabled
+     */
+    public void flush() {
+        windows.values().removeIf(window -> {
+            summarize(window);
+            return true;
+        });
+    }
+
+    /**
+     * @return the number of players with an open window
+     */
+    public int size() {
+        return windows.size();
+    }
+
+    private void summarize(Window window) {
+        if (window.suppressed > 0) {
+            auditLog.record(AuditLog.Type.PREVENTED_REPEATED, window.world, window.x, window.y, window.z,
+                window.playerName + " " + window.suppressed + "x " + window.type);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Set of the chunks scanned recently, per world, keyed on {@link org.bukkit.Chunk#getChunkKey()}.
+ * Every entry expires on its own after the configured time plus or minus some jitter, through a
+ * timing wheel advanced once per second, so chunks drop out of the cache spread over time instead of
+ * all at once. Entries are also invalidated when a chunk unloads or its item frames change.
+ * Lookups allocate nothing, and the number of entries per world is capped.
+ */
+public class ProcessedChunkCache implements Runnable {
+
+    // One wheel slot per second; expiry times (with jitter) must stay below this
+    private static final int WHEEL_SECONDS = 1024;
+
+    private final Map<UUID, TimedKeyTable> worlds = new ConcurrentHashMap<>();
+
+    private volatile int ttlSeconds;
+    private volatile int jitterSeconds;
+    private volatile int maxEntries;
+
+    // Seconds since the cache was created, advanced by run()
+    private volatile long now;
+
+    public ProcessedChunkCache(int ttlSeconds, double jitter, int maxEntries) {
+        configure(ttlSeconds, jitter, maxEntries);
+    }
+
+    /**
+     * @param ttlSeconds Average time a chunk stays in the cache
+     * @param jitter Share of the time by which each entry's expiry is randomly moved earlier or later, e.g. 0.2
+     * @param maxEntries Maximum number of chunks cached per world; further chunks are simply not cached
+     */
+    public void configure(int ttlSeconds, double jitter, int maxEntries) {
+        jitter = Math.max(0.0, Math.min(0.9, jitter));
+        // Keep the latest expiry within one turn of the wheel
+        this.ttlSeconds = Math.max(1, Math.min((int) ((WHEEL_SECONDS - 1) / (1.0 + jitter)), ttlSeconds));
+        this.jitterSeconds = (int) (this.ttlSeconds * jitter);
+        this.maxEntries = Math.max(1, maxEntries);
+        for (TimedKeyTable table : worlds.values()) {
+            synchronized (table) {
+                table.resize(this.maxEntries);
+            }
+        }
+    }
+
+    /**
+     * @param world The world of the chunk
+     * @param chunkKey The chunk key, as returned by {@link org.bukkit.Chunk#getChunkKey()}
+     * @return true if the chunk was scanned recently
+     */
+    public boolean contains(World world, long chunkKey) {
+        TimedKeyTable table = worlds.get(world.getUID());
+        if (table == null) {
+            return false;
+        }
+        synchronized (table) {
+            return table.contains(chunkKey);
+        }
+    }
+
+    /**
+     * Remembers that a chunk was just scanned
+     */
+    public void add(World world, long chunkKey) {
+        TimedKeyTable table = worlds.computeIfAbsent(world.getUID(), uid -> new TimedKeyTable(maxEntries, WHEEL_SECONDS, false));
+        int jitter = jitterSeconds > 0 ? ThreadLocalRandom.current().nextInt(-jitterSeconds, jitterSeconds + 1) : 0;
+        long expiresAt = now + Math.max(1, ttlSeconds + jitter);
+        synchronized (table) {
+            table.schedule(chunkKey, null, expiresAt);
+        }
+    }
+
+    /**
+     * Forgets a chunk, so it is scanned again the next time it is visited
+     */
+    public void invalidate(World world, long chunkKey) {
+        TimedKeyTable table = worlds.get(world.getUID());
+        if (table != null) {
+            synchronized (table) {
+                table.remove(chunkKey);
+            }
+        }
+    }
+
+    /**
+     * Forgets every chunk of every world
+     */
+    public void clear() {
+        for (TimedKeyTable table : worlds.values()) {
+            synchronized (table) {
+                table.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops a world, e.g. when it is unloaded
+     */
+    public void clearWorld(World world) {
+        worlds.remove(world.getUID());
+    }
+
+    /**
+     * @return the number of chunks cached over all worlds
+     */
+    public int size() {
+        int size = 0;
+        for (TimedKeyTable table : worlds.values()) {
+            synchronized (table) {
+                size += table.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Expires the entries due this second; must run once per second
+     */
+    @Override
+    public void run() {
+        long second = now + 1;
+        for (TimedKeyTable table : worlds.values()) {
+            synchronized (table) {
+                table.drain(second, null);
+            }
+        }
+        now = second;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.minecraftplugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Purges one entities region file (r.X.Z.mca): the file is memory-mapped, every chunk is inflated and handed
+ * to the {@link EntityChunkPurger}, and only the chunks that changed are compressed again and written back.
+ * Changed chunks are appended to the end of the file and the location table is updated last, so an
+ * interrupted run leaves every chunk pointing at either its old or its new data.
+ */
+final class RegionFilePurger {
+
+    /**
+     * Counts for one region file
+     */
+    static final class Stats {
+        int chunks;
+        int frames;
+        int matches;
+        int rewritten; // in a dry run, the chunks that would be rewritten
+        int skipped; // corrupt, or in a compression the JDK can't read (gzip, LZ4, external .mcc files)
+    }
+
+    /**
+     * A changed chunk waiting to be written
+     */
+    private static final class ChunkWrite {
+        final int slot;
+        final byte[] compressed;
+
+        ChunkWrite(int slot, byte[] compressed) {
+            this.slot = slot;
+            this.compressed = compressed;
+        }
+    }
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int SLOTS = 1024;
+    private static final int COMPRESSION_ZLIB = 2;
+    private static final int COMPRESSION_NONE = 3;
+
+    private final EntityChunkPurger purger;
+    private final boolean dryRun;
+
+    RegionFilePurger(EntityChunkPurger purger, boolean dryRun) {
+        this.purger = purger;
+        this.dryRun = dryRun;
+    }
+
+    Stats purge(Path file) throws IOException {
+        Stats stats = new Stats();
+        List<ChunkWrite> writes = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        Deflater deflater = new Deflater();
+        try (FileChannel channel = dryRun ? FileChannel.open(file, StandardOpenOption.READ)
+                                          : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < 2L * SECTOR_BYTES) {
+                return stats;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] buffer = new byte[64 * 1024];
+
+            for (int slot = 0; slot < SLOTS; slot++) {
+                int location = map.getInt(slot * 4);
+                if (location == 0) {
+                    continue;
+                }
+                long offset = (long) (location >>> 8) * SECTOR_BYTES;
+                if (offset < 2L * SECTOR_BYTES || offset + 5 > size) {
+                    stats.skipped++;
+                    continue;
+                }
+                int length = map.getInt((int) offset);
+                int compression = map.get((int) offset + 4);
+                if (length < 1 || offset + 4 + length > size) {
+                    stats.skipped++;
+                    continue;
+                }
+                stats.chunks++;
+                if (compression != COMPRESSION_ZLIB && compression != COMPRESSION_NONE) {
+                    stats.skipped++;
+                    continue;
+                }
+
+                ByteBuffer payload = map.slice((int) offset + 5, length - 1);
+                int dataLength;
+                EntityChunkPurger.Result result;
+                try {
+                    if (compression == COMPRESSION_NONE) {
+                        if (buffer.length < length - 1) {
+                            buffer = new byte[length - 1];
+                        }
+                        payload.get(buffer, 0, length - 1);
+                        dataLength = length - 1;
+                    } else {
+                        inflater.reset();
+                        inflater.setInput(payload);
+                        dataLength = 0;
+                        while (!inflater.finished()) {
+                            if (dataLength == buffer.length) {
+                                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                            }
+                            int read = inflater.inflate(buffer, dataLength, buffer.length - dataLength);
+                            if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                                throw new DataFormatException("Truncated chunk data");
+                            }
+                            dataLength += read;
+                        }
+                    }
+                    result = purger.purge(buffer, dataLength, !dryRun);
+                } catch (DataFormatException | IllegalStateException e) {
+                    stats.skipped++;
+                    continue;
+                }
+
+                stats.frames += result.frames;
+                stats.matches += result.matches;
+                if (result.changed && dryRun) {
+                    stats.rewritten++;
+                } else if (result.changed) {
+                    writes.add(new ChunkWrite(slot, deflate(deflater, result.rewritten)));
+                }
+            }
+
+            if (!writes.isEmpty()) {
+                stats.rewritten = write(channel, size, writes);
+                stats.skipped += writes.size() - stats.rewritten;
+            }
+        } finally {
+            inflater.end();
+            deflater.end();
+        }
+        return stats;
+    }
+
+    /**
+     * Appends the changed chunks to the file, then points the location table at them
+     * @return the number of chunks written; chunks over 255 sectors would need an external file and are left as they were
+     */
+    private static int write(FileChannel channel, long size, List<ChunkWrite> writes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(2 * SECTOR_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new EOFException("Region file header is truncated");
+            }
+        }
+
+        long end = (size + SECTOR_BYTES - 1) / SECTOR_BYTES * SECTOR_BYTES;
+        int timestamp = (int) (System.currentTimeMillis() / 1000L);
+        int written = 0;
+        for (ChunkWrite write : writes) {
+            int sectors = (5 + write.compressed.length + SECTOR_BYTES - 1) / SECTOR_BYTES;
+            if (sectors > 255) {
+                continue;
+            }
+            ByteBuffer data = ByteBuffer.allocate(sectors * SECTOR_BYTES);
+            data.putInt(write.compressed.length + 1);
+            data.put((byte) COMPRESSION_ZLIB);
+            data.put(write.compressed);
+            data.clear();
+            writeFully(channel, data, end);
+
+            header.putInt(write.slot * 4, (int) (end / SECTOR_BYTES) << 8 | sectors);
+            header.putInt(SECTOR_BYTES + write.slot * 4, timestamp);
+            end += (long) sectors * SECTOR_BYTES;
+            written++;
+        }
+
+        // The chunk data must be on disk before anything points at it
+        channel.force(false);
+        header.clear();
+        writeFully(channel, header, 0);
+        channel.force(false);
+        return written;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.write(chunk, 0, length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TaskDispatcher} for regionized (Folia) servers: plugin-wide tasks run on the global region,
+ * chunk work on the region owning the chunk and entity work on the entity's scheduler,
+ * so scans of different regions run in parallel
+ */
+public class RegionTaskDispatcher implements TaskDispatcher {
+
+    // Milliseconds per tick, for the async scheduler which works in wall-clock time
+    private static final long TICK_MILLIS = 50L;
+
+    private final Plugin plugin;
+
+    public RegionTaskDispatcher(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public TaskHandle runGlobalLater(Runnable task, long delayTicks) {
+        return Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1L, delayTicks))::cancel;
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+            Math.max(1L, delayTicks), Math.max(1L, periodTicks))::cancel;
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(world, chunkX, chunkZ)) {
+            task.run();
+        } else {
+            Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+        }
+    }
+
+    @Override
+    public TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks) {
+        return Bukkit.getRegionScheduler().runDelayed(plugin, world, chunkX, chunkZ, scheduled -> task.run(), Math.max(1L, delayTicks))::cancel;
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        // Nothing to do if the entity is retired (removed) before the task runs
+        entity.getScheduler().execute(plugin, task, null, Math.max(1L, delayTicks));
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, scheduled -> task.run());
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return Bukkit.getAsyncScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+            delayTicks * TICK_MILLIS, Math.max(1L, periodTicks) * TICK_MILLIS, TimeUnit.MILLISECONDS)::cancel;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return Bukkit.isOwnedByCurrentRegion(entity);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.entity.ItemFrame;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Single funnel for the removals found by the scan paths: the chunk pass, the boat-proximity pass,
+ * the full scan, the spawn checks, entity loads and manual scans. Hits are keyed by entity ID, so a frame
+ * found by several paths in one cycle (or by the boat pass once per nearby boat) is acted on once and the
+ * other hits are only counted. The queued removals are applied in one batch per tick, each on the thread
+ * owning its frame. The frame is matched against the rules again right before, so an item swapped in since
+ * it was found decides the action, or is left alone. A cycle lasts from the first hit until the tick after
+ * the batch that applied it, so a path that was still holding the frame then does not queue it again.
+ * It runs as a global tick task.
+ */
+public class RemovalPipeline implements Runnable {
+
+    /**
+     * Takes the action on a frame, on the thread owning it
+     */
+    @FunctionalInterface
+    public interface Remover {
+        void remove(ItemFrame frame, ElytraAction action, String source);
+    }
+
+    private static final class Removal {
+        final ItemFrame frame;
+        final String source;
+
+        Removal(ItemFrame frame, String source) {
+            this.frame = frame;
+            this.source = source;
+        }
+    }
+
+    private final ScanMetrics metrics;
+    private final TaskDispatcher dispatcher;
+    private final Function<ItemFrame, RuleSet.Rule> matcher;
+    private final Remover remover;
+
+    // Removals waiting for the next batch, by entity ID
+    private final Map<Integer, Removal> queued = new ConcurrentHashMap<>();
+
+    // Entity IDs of the last batch, still part of the cycle until the next batch starts
+    private volatile Set<Integer> applied = Set.of();
+
+    // Number of batches run so far
+    private volatile long batches;
+
+    /**
+     * @param matcher Finds the rule the item of a frame falls under, or null if the item stays
+     * @param remover Takes the action of that rule
+     */
+    public RemovalPipeline(ScanMetrics metrics, TaskDispatcher dispatcher, Function<ItemFrame, RuleSet.Rule> matcher, Remover remover) {
+        this.metrics = metrics;
+        this.dispatcher = dispatcher;
+        this.matcher = matcher;
+        this.remover = remover;
+    }
+
+    /**
+     * Checks whether a frame was already handed over in this cycle, before its item is looked at;
+     * if so, the hit is counted as a suppressed duplicate
+     * @param frame The item frame about to be matched
+     * @return true if the frame is queued or was just acted on
+     */
+    public boolean isHandled(ItemFrame frame) {
+        int entityId = frame.getEntityId();
+        if (queued.containsKey(entityId) || applied.contains(entityId)) {
+            metrics.increment(ScanMetrics.Counter.REMOVALS_DEDUPLICATED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queues a frame for the next batch, unless it was already handed over in this cycle
+     * @param frame The item frame containing a targeted item
+     * @param source What found the item, recorded in the audit log
+     * @return false if the hit was a duplicate
+     */
+    public boolean submit(ItemFrame frame, String source) {
+        int entityId = frame.getEntityId();
+        if (applied.contains(entityId) || queued.putIfAbsent(entityId, new Removal(frame, source)) != null) {
+            metrics.increment(ScanMetrics.Counter.REMOVALS_DEDUPLICATED);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of batches run so far; on Paper, every frame queued before this was read
+     *         has been handled once it grew
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    @Override
+    public void run() {
+        batches++;
+        if (queued.isEmpty()) {
+            applied = Set.of();
+            return;
+        }
+        long start = System.nanoTime();
+
+        // Published before the entries leave the queue, so a hit racing the batch is still seen as a duplicate
+        Set<Integer> batch = ConcurrentHashMap.newKeySet(queued.size());
+        applied = batch;
+        for (Map.Entry<Integer, Removal> entry : queued.entrySet()) {
+            batch.add(entry.getKey());
+            if (queued.remove(entry.getKey(), entry.getValue())) {
+                apply(entry.getValue());
+            }
+        }
+
+        metrics.record(ScanMetrics.Timer.REMOVAL_BATCH, start);
+    }
+
+    /**
+     * Applies the queued removals whose frames the current thread owns right away (all of them on Paper),
+     * e.g. when the plugin is disabled; the others are dropped, and a new cycle starts
+     */
+    public void flush() {
+        for (Removal removal : queued.values()) {
+            if (dispatcher.isOwnedByCurrentThread(removal.frame)) {
+                applyNow(removal);
+            }
+        }
+        queued.clear();
+        applied = Set.of();
+    }
+
+    private void apply(Removal removal) {
+        if (dispatcher.isOwnedByCurrentThread(removal.frame)) {
+            applyNow(removal);
+        } else {
+            dispatcher.runAtEntityLater(removal.frame, () -> applyNow(removal), 1L);
+        }
+    }
+
+    private void applyNow(Removal removal) {
+        // The frame may have been broken, unloaded or given another item while it was queued
+        if (!removal.frame.isValid()) {
+            return;
+        }
+        RuleSet.Rule rule = matcher.apply(removal.frame);
+        if (rule != null) {
+            remover.remove(removal.frame, rule.getAction(), removal.source);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Immutable, compiled snapshot of the removal rules: which items are removed from item frames,
+ * in which worlds and Y range, with which action, and which areas are exempt.
+ * A snapshot is built once per (re)load and swapped in atomically, so scans, listeners and
+ * worker threads can all read it without locking. Materials are matched through an EnumSet
+ * and ranges through primitive comparisons.
+ */
+public final class RuleSet {
+
+    /**
+     * Decides whether a block column lies within an End City ship, for the ships-only rules
+     */
+    @FunctionalInterface
+    public interface ShipCheck {
+        boolean isShip(World world, int x, int z);
+    }
+
+    /**
+     * A single rule; the first rule matching an item wins, passing over ships-only rules whose ship check fails
+     */
+    public static final class Rule {
+        private final String name;
+        private final EnumSet<Material> materials;
+        private final Set<String> worlds;
+        private final EnumSet<Environment> environments;
+        private final int minY;
+        private final int maxY;
+        private final boolean shipsOnly;
+        private final ElytraAction action;
+
+        Rule(String name, EnumSet<Material> materials, Set<String> worlds, EnumSet<Environment> environments,
+             int minY, int maxY, boolean shipsOnly, ElytraAction action) {
+            this.name = name;
+            this.materials = materials;
+            this.worlds = worlds;
+            this.environments = environments;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.shipsOnly = shipsOnly;
+            this.action = action;
+        }
+
+        boolean appliesTo(String worldName, Environment environment) {
+            return (worlds.isEmpty() || worlds.contains(worldName.toLowerCase(Locale.ROOT))) &&
+                   (environments.isEmpty() || environments.contains(environment));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ElytraAction getAction() {
+            return action;
+        }
+
+        /**
+         * @return true if the rule only applies within End City ships
+         */
+        public boolean isShipsOnly() {
+            return shipsOnly;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + materials + " in " + (worlds.isEmpty() ? "any world" : worlds) +
+                   (environments.isEmpty() ? "" : " " + environments) + ", Y " + minY + " to " + maxY +
+                   (shipsOnly ? ", ships only" : "") + " -> " + action;
+        }
+    }
+
+    /**
+     * A box where nothing is removed
+     */
+    private static final class Exemption {
+        final String world; // null for every world
+        final int minX, minY, minZ, maxX, maxY, maxZ;
+
+        Exemption(String world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            this.world = world;
+            this.minX = Math.min(minX, maxX);
+            this.minY = Math.min(minY, maxY);
+            this.minZ = Math.min(minZ, maxZ);
+            this.maxX = Math.max(minX, maxX);
+            this.maxY = Math.max(minY, maxY);
+            this.maxZ = Math.max(minZ, maxZ);
+        }
+
+        boolean contains(String worldName, int x, int y, int z) {
+            return (world == null || world.equalsIgnoreCase(worldName)) &&
+                   x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final Rule[] rules;
+    private final Exemption[] exemptions;
+    private final EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+    private final int fingerprint;
+    private final int shipMinY;
+    private final int shipMaxY;
+    private final boolean shipsOnlyRules;
+
+    // Rules applying to each world, derived lazily from the immutable rules
+    private final Map<UUID, Rule[]> rulesByWorld = new ConcurrentHashMap<>();
+
+    private RuleSet(Rule[] rules, Exemption[] exemptions, int fingerprint) {
+        this.rules = rules;
+        this.exemptions = exemptions;
+        this.fingerprint = fingerprint;
+
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Rule rule : rules) {
+            materials.addAll(rule.materials);
+            if (rule.shipsOnly) {
+                minY = Math.min(minY, rule.minY);
+                maxY = Math.max(maxY, rule.maxY);
+            }
+        }
+        this.shipsOnlyRules = minY <= maxY;
+        this.shipMinY = minY <= maxY ? minY : Integer.MIN_VALUE;
+        this.shipMaxY = minY <= maxY ? maxY : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Compiles the rules of the configuration. Without a rules section, a single rule is built from the
+     * end-ship settings. Invalid entries are reported and skipped.
+     * @param config The plugin configuration
+     * @param logger Where to report invalid entries
+     */
+    public static RuleSet compile(ConfigurationSection config, Logger logger) {
+        List<Rule> rules = new ArrayList<>();
+        ConfigurationSection rulesSection = config.getConfigurationSection("rules");
+        if (rulesSection == null || rulesSection.getKeys(false).isEmpty()) {
+            rules.add(compileEndShipRule(config, logger));
+        } else {
+            for (String name : rulesSection.getKeys(false)) {
+                ConfigurationSection section = rulesSection.getConfigurationSection(name);
+                if (section != null) {
+                    rules.add(compileRule(name, section, logger));
+                }
+            }
+        }
+
+        List<Exemption> exemptions = new ArrayList<>();
+        ConfigurationSection exemptionsSection = config.getConfigurationSection("exemptions");
+        if (exemptionsSection != null) {
+            for (String name : exemptionsSection.getKeys(false)) {
+                ConfigurationSection section = exemptionsSection.getConfigurationSection(name);
+                List<Integer> min = section == null ? List.of() : section.getIntegerList("min");
+                List<Integer> max = section == null ? List.of() : section.getIntegerList("max");
+                if (min.size() != 3 || max.size() != 3) {
+                    logger.warning("Exemption " + name + " needs min and max as [x, y, z], ignoring it");
+                    continue;
+                }
+                exemptions.add(new Exemption(section.getString("world"),
+                    min.get(0), min.get(1), min.get(2), max.get(0), max.get(1), max.get(2)));
+            }
+        }
+
+        // Any change to the rules invalidates the "cleaned" markers stored in chunks
+        List<Object> described = new ArrayList<>();
+        for (Rule rule : rules) {
+            described.add(rule.toString());
+        }
+        for (Exemption e : exemptions) {
+            described.add(Arrays.asList(e.world, e.minX, e.minY, e.minZ, e.maxX, e.maxY, e.maxZ));
+        }
+        int fingerprint = described.hashCode();
+        return new RuleSet(rules.toArray(NO_RULES), exemptions.toArray(new Exemption[0]), fingerprint);
+    }
+
+    /**
+     * The rule the plugin always had: elytras in The End, anywhere or only in ships within a Y range
+     */
+    private static Rule compileEndShipRule(ConfigurationSection config, Logger logger) {
+        boolean removeAll = config.getBoolean("end-ship.remove-all-end-elytras", true);
+        return new Rule("end-ship", EnumSet.of(Material.ELYTRA), Set.of(), EnumSet.of(Environment.THE_END),
+            removeAll ? Integer.MIN_VALUE : config.getInt("end-ship.min-y", 60),
+            removeAll ? Integer.MAX_VALUE : config.getInt("end-ship.max-y", 100),
+            !removeAll, parseAction(config.getString("end-ship.action", "REPLACE_WITH_APPLE"), "end-ship", logger));
+    }
+
+    private static Rule compileRule(String name, ConfigurationSection section, Logger logger) {
+        EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+        for (String materialName : section.getStringList("materials")) {
+            Material material = Material.matchMaterial(materialName);
+            if (material == null || !material.isItem()) {
+                logger.warning("Unknown item " + materialName + " in rule " + name + ", ignoring it");
+            } else {
+                materials.add(material);
+            }
+        }
+        if (!section.isSet("materials")) {
+            materials.add(Material.ELYTRA);
+        }
+
+        // Sorted, so the fingerprint does not depend on iteration order
+        SortedSet<String> worlds = new TreeSet<>();
+        for (String world : section.getStringList("worlds")) {
+            worlds.add(world.toLowerCase(Locale.ROOT));
+        }
+
+        EnumSet<Environment> environments = EnumSet.noneOf(Environment.class);
+        for (String environment : section.getStringList("environments")) {
+            try {
+                environments.add(Environment.valueOf(environment.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unknown environment " + environment + " in rule " + name + ", ignoring it");
+            }
+        }
+
+        return new Rule(name, materials, Collections.unmodifiableSortedSet(worlds), environments,
+            section.getInt("min-y", Integer.MIN_VALUE), section.getInt("max-y", Integer.MAX_VALUE),
+            section.getBoolean("ships-only", false),
+            parseAction(section.getString("action", "REPLACE_WITH_APPLE"), name, logger));
+    }
+
+    private static ElytraAction parseAction(String actionString, String ruleName, Logger logger) {
+        try {
+            return ElytraAction.valueOf(actionString.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid action in rule " + ruleName + ": " + actionString + ". Using default: REPLACE_WITH_APPLE");
+            return ElytraAction.REPLACE_WITH_APPLE;
+        }
+    }
+
+    /**
+     * @return the rules that apply to a world, in order
+     */
+    private Rule[] rulesFor(World world) {
+        Rule[] cached = rulesByWorld.get(world.getUID());
+        if (cached != null) {
+            return cached;
+        }
+        List<Rule> applicable = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.appliesTo(world.getName(), world.getEnvironment())) {
+                applicable.add(rule);
+            }
+        }
+        Rule[] compiled = applicable.toArray(NO_RULES);
+        rulesByWorld.put(world.getUID(), compiled);
+        return compiled;
+    }
+
+    /**
+     * @return true if any rule applies to the world, i.e. its item frames have to be indexed and scanned
+     */
+    public boolean appliesTo(World world) {
+        return rulesFor(world).length > 0;
+    }
+
+    /**
+     * Same as {@link #appliesTo(World)}, for worlds known only by name and environment (e.g. during generation)
+     */
+    public boolean appliesTo(String worldName, Environment environment) {
+        for (Rule rule : rules) {
+            if (rule.appliesTo(worldName, environment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the item is targeted by any rule, in any world
+     */
+    public boolean isTargetMaterial(Material material) {
+        return materials.contains(material);
+    }
+
+    /**
+     * Finds the rule an item at a location falls under
+     * @param world The world
+     * @param material The item type
+     * @param x Block X coordinate
+     * @param y Block Y coordinate
+     * @param z Block Z coordinate
+     * @return the first matching rule, or null if the item stays
+     */
+    public Rule match(World world, Material material, int x, int y, int z) {
+        return match(world, material, x, y, z, null);
+    }
+
+    /**
+     * Finds the rule an item at a location falls under, skipping the ships-only rules outside ships
+     * @param shipCheck Tells whether the location is within a ship, asked at most once and only when a ships-only
+     *                  rule matches; null applies the ships-only rules without it (e.g. for placements)
+     * @return the first matching rule, or null if the item stays
+     */
+    public Rule match(World world, Material material, int x, int y, int z, ShipCheck shipCheck) {
+        // Most items are rejected here, without looking at the world at all
+        if (!materials.contains(material)) {
+            return null;
+        }
+        int inShip = -1; // unknown until a ships-only rule matches
+        for (Rule rule : rulesFor(world)) {
+            if (!rule.materials.contains(material) || y < rule.minY || y > rule.maxY) {
+                continue;
+            }
+            if (rule.shipsOnly && shipCheck != null) {
+                if (inShip < 0) {
+                    inShip = shipCheck.isShip(world, x, z) ? 1 : 0;
+                }
+                if (inShip == 0) {
+                    // A later rule without the ship restriction may still apply
+                    continue;
+                }
+            }
+            return isExempt(world.getName(), x, y, z) ? null : rule;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the rule the item shown by a frame falls under
+     * @param shipCheck See {@link #match(World, Material, int, int, int, ShipCheck)}
+     * @return the first matching rule, or null if the frame is empty or its item stays
+     */
+    public Rule match(ItemFrame frame, ShipCheck shipCheck) {
+        ItemStack item = frame.getItem();
+        if (item == null || !materials.contains(item.getType())) {
+            return null;
+        }
+        Location location = frame.getLocation();
+        return match(frame.getWorld(), item.getType(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), shipCheck);
+    }
+
+    /**
+     * Same as {@link #match(ItemFrame, ShipCheck)} without a ship check, with the world known only by name and environment
+     * (e.g. during generation)
+     */
+    public Rule match(String worldName, Environment environment, ItemFrame frame) {
+        ItemStack item = frame.getItem();
+        if (item == null || !materials.contains(item.getType())) {
+            return null;
+        }
+        Location location = frame.getLocation();
+        for (Rule rule : rules) {
+            if (rule.materials.contains(item.getType()) && location.getBlockY() >= rule.minY && location.getBlockY() <= rule.maxY &&
+                rule.appliesTo(worldName, environment)) {
+                return isExempt(worldName, location.getBlockX(), location.getBlockY(), location.getBlockZ()) ? null : rule;
+            }
+        }
+        return null;
+    }
+
+    private boolean isExempt(String worldName, int x, int y, int z) {
+        for (Exemption exemption : exemptions) {
+            if (exemption.contains(worldName, x, y, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every rule of the world only applies within End City ships, so the ship index can skip chunks
+     */
+    public boolean isShipsOnly(World world) {
+        Rule[] worldRules = rulesFor(world);
+        for (Rule rule : worldRules) {
+            if (!rule.shipsOnly) {
+                return false;
+            }
+        }
+        return worldRules.length > 0;
+    }
+
+    /**
+     * @return true if any rule only applies within End City ships
+     */
+    public boolean hasShipsOnlyRules() {
+        return shipsOnlyRules;
+    }
+
+    /**
+     * @return the lowest Y of the ships-only rules, for the ship index
+     */
+    public int getShipMinY() {
+        return shipMinY;
+    }
+
+    /**
+     * @return the highest Y of the ships-only rules, for the ship index
+     */
+    public int getShipMaxY() {
+        return shipMaxY;
+    }
+
+    /**
+     * @return a hash that changes whenever the rules change
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return one line per rule and the number of exemptions, for the log
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Rule rule : rules) {
+            lines.add("- Rule " + rule);
+        }
+        lines.add("- Exempt areas: " + exemptions.length);
+        return lines;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.minecraftplugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Performance counters and latency histograms for the scan paths and event handlers.
+ * Everything is recorded into LongAdders, so recording is cheap and safe from any thread.
+ * The numbers are shown by /elytraremover stats and written in Prometheus text format
+ * for node-exporter's textfile collector.
+ */
+public class ScanMetrics {
+
+    /**
+     * Timed code paths
+     */
+    public enum Timer {
+        CHUNK_SCAN("chunk_scan"),
+        BOAT_PASS("boat_pass"),
+        SCHEDULER_TICK("scheduler_tick"),
+        LISTENER_INTERACT("listener_interact"),
+        LISTENER_HANGING_PLACE("listener_hanging_place"),
+        LISTENER_CHUNK_POPULATE("listener_chunk_populate"),
+        LISTENER_ENTITY_SPAWN("listener_entity_spawn"),
+        LISTENER_ENTITIES_LOAD("listener_entities_load"),
+        GENERATION_INTERCEPT("generation_intercept"),
+        SHIP_CLASSIFY("ship_classify"), // block count of one chunk snapshot, on a worker thread
+        REMOVAL_BATCH("removal_batch"); // one tick's batch of queued removals
+
+        private final String metricName;
+
+        Timer(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    /**
+     * Plain counters
+     */
+    public enum Counter {
+        CHUNKS_SCANNED("chunks_scanned"),
+        ENTITIES_SCANNED("entities_scanned"), // entities inspected by the boat-proximity pass
+        FRAMES_SCANNED("frames_scanned"),
+        PROCESSED_CACHE_HITS("processed_cache_hits"),
+        PROCESSED_CACHE_MISSES("processed_cache_misses"),
+        LEDGER_HITS("ledger_hits"),
+        SHIP_INDEX_SKIPS("ship_index_skips"), // chunks no End City ship reaches into
+        QUEUE_COALESCED("queue_coalesced"), // events merged into a check that was already pending
+        QUEUE_DROPPED_FULL("queue_dropped_full"),
+        QUEUE_DROPPED_UNLOADED("queue_dropped_unloaded"),
+        NOTIFICATIONS_THROTTLED("notifications_throttled"), // blocked attempts neither messaged nor audited one by one
+        CHUNKS_CLASSIFIED("chunks_classified"), // chunk snapshots whose ship blocks were counted
+        SHIP_CHUNKS("ship_chunks"), // of those, the chunks holding a ship
+        REMOVALS_DEDUPLICATED("removals_deduplicated"); // hits on frames already handed to the removal pipeline
+
+        private final String metricName;
+
+        Counter(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    /**
+     * Histogram with power-of-two nanosecond buckets, from 1 microsecond to about 1 second
+     */
+    static final class LatencyHistogram {
+        // Bucket i counts samples up to 1024 << i nanoseconds; the last one counts everything above
+        private static final int BUCKETS = 21;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int bucket = nanos <= 1024L ? 0 : 64 - Long.numberOfLeadingZeros((nanos - 1) >> 10);
+            buckets[Math.min(bucket, BUCKETS)].increment();
+            count.increment();
+            sumNanos.add(nanos);
+        }
+
+        static long upperBoundNanos(int bucket) {
+            return 1024L << bucket;
+        }
+
+        /**
+         * @param quantile Quantile between 0 and 1
+         * @return the upper bound of the bucket the quantile falls in, in nanoseconds
+         */
+        long quantileNanos(double quantile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return upperBoundNanos(i);
+                }
+            }
+            return upperBoundNanos(BUCKETS);
+        }
+    }
+
+    private final Map<Timer, LatencyHistogram> timers = new EnumMap<>(Timer.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<ElytraAction, LongAdder> removals = new EnumMap<>(ElytraAction.class);
+    private final long startedAt = System.currentTimeMillis();
+
+    public ScanMetrics() {
+        for (Timer timer : Timer.values()) {
+            timers.put(timer, new LatencyHistogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+        for (ElytraAction action : ElytraAction.values()) {
+            removals.put(action, new LongAdder());
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}
+     * @param timer The timed code path
+     * @param startNanos Value of {@link System#nanoTime()} when the code path started
+     */
+    public void record(Timer timer, long startNanos) {
+        timers.get(timer).record(System.nanoTime() - startNanos);
+    }
+
+    public void increment(Counter counter) {
+        counters.get(counter).increment();
+    }
+
+    public void add(Counter counter, long amount) {
+        counters.get(counter).add(amount);
+    }
+
+    public void countRemoval(ElytraAction action) {
+        removals.get(action).increment();
+    }
+
+    /**
+     * @return the current value of a counter
+     */
+    long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * @return human readable lines for /elytraremover stats
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        long uptimeSeconds = Math.max(1L, (System.currentTimeMillis() - startedAt) / 1000L);
+        lines.add("§7Uptime: §f" + uptimeSeconds + "s");
+
+        for (Timer timer : Timer.values()) {
+            LatencyHistogram histogram = timers.get(timer);
+            long count = histogram.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            lines.add(String.format(Locale.ROOT, "§7%s: §f%d calls, avg %.3f ms, p99 <= %.3f ms, total %.1f ms",
+                timer.metricName, count, histogram.sumNanos.sum() / 1e6 / count,
+                histogram.quantileNanos(0.99) / 1e6, histogram.sumNanos.sum() / 1e6));
+        }
+
+        lines.add("§7Scanned: §f" + counters.get(Counter.CHUNKS_SCANNED).sum() + " chunks, " +
+                  counters.get(Counter.ENTITIES_SCANNED).sum() + " entities, " +
+                  counters.get(Counter.FRAMES_SCANNED).sum() + " item frames");
+
+        long hits = counters.get(Counter.PROCESSED_CACHE_HITS).sum();
+        long misses = counters.get(Counter.PROCESSED_CACHE_MISSES).sum();
+        lines.add(String.format(Locale.ROOT, "§7Processed chunk cache: §f%d hits, %d misses (%.1f%% hit rate), %d skipped by ledger, %d by ship index",
+            hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses), counters.get(Counter.LEDGER_HITS).sum(),
+            counters.get(Counter.SHIP_INDEX_SKIPS).sum()));
+
+        lines.add("§7Event queue: §f" + counters.get(Counter.QUEUE_COALESCED).sum() + " coalesced, " +
+                  counters.get(Counter.QUEUE_DROPPED_FULL).sum() + " dropped (full), " +
+                  counters.get(Counter.QUEUE_DROPPED_UNLOADED).sum() + " dropped (unloaded)");
+        lines.add("§7Blocked placements throttled: §f" + counters.get(Counter.NOTIFICATIONS_THROTTLED).sum());
+        lines.add("§7Ship classification: §f" + counters.get(Counter.CHUNKS_CLASSIFIED).sum() + " chunks classified, " +
+                  counters.get(Counter.SHIP_CHUNKS).sum() + " holding a ship");
+        
+        StringBuilder removalLine = new StringBuilder("§7Removals:§f");
+        for (ElytraAction action : ElytraAction.values()) {
+            removalLine.append(' ').append(action).append('=').append(removals.get(action).sum());
+        }
+        removalLine.append(" §7(").append(counters.get(Counter.REMOVALS_DEDUPLICATED).sum()).append(" duplicate hits suppressed)");
+        lines.add(removalLine.toString());
+        return lines;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        out.append("# HELP elytraremover_duration_seconds Time spent in ElytraRemover code paths\n");
+        out.append("# TYPE elytraremover_duration_seconds histogram\n");
+        for (Timer timer : Timer.values()) {
+            LatencyHistogram histogram = timers.get(timer);
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                cumulative += histogram.buckets[i].sum();
+                out.append("elytraremover_duration_seconds_bucket{path=\"").append(timer.metricName)
+                   .append("\",le=\"").append(formatSeconds(LatencyHistogram.upperBoundNanos(i))).append("\"} ")
+                   .append(cumulative).append('\n');
+            }
+            out.append("elytraremover_duration_seconds_bucket{path=\"").append(timer.metricName).append("\",le=\"+Inf\"} ")
+               .append(histogram.count.sum()).append('\n');
+            out.append("elytraremover_duration_seconds_sum{path=\"").append(timer.metricName).append("\"} ")
+               .append(formatSeconds(histogram.sumNanos.sum())).append('\n');
+            out.append("elytraremover_duration_seconds_count{path=\"").append(timer.metricName).append("\"} ")
+               .append(histogram.count.sum()).append('\n');
+        }
+
+        for (Counter counter : Counter.values()) {
+            String name = "elytraremover_" + counter.metricName + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counters.get(counter).sum()).append('\n');
+        }
+
+        out.append("# TYPE elytraremover_removals_total counter\n");
+        for (ElytraAction action : ElytraAction.values()) {
+            out.append("elytraremover_removals_total{action=\"").append(action).append("\"} ")
+               .append(removals.get(action).sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the Prometheus text file atomically, so the collector never reads a partial file
+     * @param file Target file, e.g. plugins/ElytraRemover/metrics.prom
+     */
+    public void writePrometheusFile(File file) throws IOException {
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(temporary.toPath(), toPrometheus().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String formatSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Incremental, tick-budgeted scan engine.
+ * Scan passes are queued and worked off a few chunks per tick through a resumable cursor
+ * over the scanned worlds and their chunks, carrying unfinished work into the next tick.
+ * Every pass snapshots its chunks when it starts and is forced to finish within
+ * {@code maxPassTicks} ticks, which bounds how long any chunk can wait to be visited.
+ * It runs as a global tick task; on a regionized server each chunk visit is handed to the
+ * region owning the chunk, so chunks of different regions are visited in parallel.
+ * Periodic passes can be paused under load; the other passes (startup and manual scans) keep running.
+ */
+public class ScanScheduler implements Runnable {
+
+    /**
+     * Work done for a single chunk of a pass
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        void visit(World world, long chunkKey);
+    }
+
+    /**
+     * A queued scan over every scanned world
+     */
+    private static final class ScanPass {
+        final String name;
+        final boolean periodic;
+        final Function<World, long[]> chunkSource;
+        final ChunkVisitor visitor;
+        final Runnable onComplete;
+
+        ScanPass(String name, boolean periodic, Function<World, long[]> chunkSource, ChunkVisitor visitor, Runnable onComplete) {
+            this.name = name;
+            this.periodic = periodic;
+            this.chunkSource = chunkSource;
+            this.visitor = visitor;
+            this.onComplete = onComplete;
+        }
+    }
+
+    // Chunk visits handed to region threads that may be outstanding at once
+    private static final int MAX_IN_FLIGHT = 256;
+
+    private final Deque<ScanPass> pendingPasses = new ArrayDeque<>();
+    private final ScanMetrics metrics;
+    private final TaskDispatcher dispatcher;
+    private final Predicate<World> worldFilter;
+
+    private volatile long tickBudgetNanos;
+    private volatile int maxPassTicks;
+    private volatile boolean paused;
+
+    // Cursor of the pass being worked off
+    private volatile ScanPass currentPass;
+    private AtomicInteger inFlight = new AtomicInteger();
+    private int drainTicks;
+    private final List<UUID> passWorlds = new ArrayList<>();
+    private final List<long[]> passChunks = new ArrayList<>();
+    private int worldIndex;
+    private int chunkIndex;
+    private int chunksPerTickFloor;
+
+    /**
+     * @param worldFilter Decides which worlds a pass covers, checked when each pass starts
+     */
+    public ScanScheduler(ScanMetrics metrics, TaskDispatcher dispatcher, Predicate<World> worldFilter, long tickBudgetNanos, int maxPassTicks) {
+        this.metrics = metrics;
+        this.dispatcher = dispatcher;
+        this.worldFilter = worldFilter;
+        configure(tickBudgetNanos, maxPassTicks);
+    }
+
+    /**
+     * Updates the per-tick budget and the pass duration bound
+     * @param tickBudgetNanos Time the scheduler may spend per tick, in nanoseconds
+     * @param maxPassTicks Number of ticks within which every pass must visit all of its chunks
+     */
+    public void configure(long tickBudgetNanos, int maxPassTicks) {
+        this.tickBudgetNanos = Math.max(0L, tickBudgetNanos);
+        this.maxPassTicks = Math.max(1, maxPassTicks);
+    }
+
+    /**
+     * Stops or resumes working off the periodic passes; while paused, a periodic pass that was running is put back
+     * in the queue to start over, and the periodic passes wait while the other passes go ahead of them
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Queues a scan pass unless a pass with the same name is already queued or running
+     * @param name Name of the pass, used to avoid piling up identical passes
+     * @param chunkSource Supplies the chunk keys to visit in each scanned world when the pass starts
+     * @param visitor Work to do for each chunk
+     * @param onComplete Called once every chunk of every scanned world was visited, may be null
+     * @return true if the pass was queued
+     */
+    public boolean submit(String name, Function<World, long[]> chunkSource, ChunkVisitor visitor, Runnable onComplete) {
+        return submit(name, false, chunkSource, visitor, onComplete);
+    }
+
+    /**
+     * Same as {@link #submit(String, Function, ChunkVisitor, Runnable)}, for passes that may be paused under load
+     * @param periodic Whether the pass is one of the periodic scans, which wait while the scheduler is paused
+     */
+    public synchronized boolean submit(String name, boolean periodic, Function<World, long[]> chunkSource, ChunkVisitor visitor,
+                                       Runnable onComplete) {
+        if (isQueued(name)) {
+            return false;
+        }
+        pendingPasses.add(new ScanPass(name, periodic, chunkSource, visitor, onComplete));
+        return true;
+    }
+
+    /**
+     * @param name Name of the pass
+     * @return true if a pass with that name is queued or running
+     */
+    public synchronized boolean isQueued(String name) {
+        if (currentPass != null && currentPass.name.equals(name)) {
+            return true;
+        }
+        for (ScanPass pass : pendingPasses) {
+            if (pass.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of passes queued or running
+     */
+    public synchronized int getPendingPasses() {
+        return pendingPasses.size() + (currentPass != null ? 1 : 0);
+    }
+
+    @Override
+    public void run() {
+        if (paused && currentPass != null && currentPass.periodic) {
+            suspendPass();
+        }
+        long start = System.nanoTime();
+        int visited = 0;
+
+        while (true) {
+            if (currentPass == null && !startNextPass()) {
+                break;
+            }
+
+            // Always make the minimum progress needed to honor the pass bound, then stop once the budget is spent
+            // (or, on a regionized server, once enough visits are waiting on region threads)
+            if (visited >= chunksPerTickFloor &&
+                (System.nanoTime() - start >= tickBudgetNanos || inFlight.get() >= MAX_IN_FLIGHT)) {
+                break;
+            }
+
+            if (!advanceCursor()) {
+                // The pass only completes once the visits handed to region threads are done,
+                // but a region that never runs its tasks must not stall the scheduler forever
+                if (inFlight.get() > 0 && ++drainTicks <= maxPassTicks) {
+                    break;
+                }
+                finishPass();
+                continue;
+            }
+
+            World world = Bukkit.getWorld(passWorlds.get(worldIndex));
+            long chunkKey = passChunks.get(worldIndex)[chunkIndex++];
+            if (world != null) {
+                visit(world, chunkKey, currentPass.visitor);
+            }
+            visited++;
+        }
+        
+        if (visited > 0) {
+            metrics.record(ScanMetrics.Timer.SCHEDULER_TICK, start);
+        }
+    }
+
+    private void visit(World world, long chunkKey, ChunkVisitor visitor) {
+        if (!dispatcher.isRegionized()) {
+            visitor.visit(world, chunkKey);
+            return;
+        }
+
+        AtomicInteger passInFlight = inFlight;
+        passInFlight.incrementAndGet();
+        dispatcher.runAtChunk(world, (int) chunkKey, (int) (chunkKey >> 32), () -> {
+            try {
+                visitor.visit(world, chunkKey);
+            } finally {
+                passInFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private synchronized boolean startNextPass() {
+        currentPass = null;
+        for (Iterator<ScanPass> iterator = pendingPasses.iterator(); iterator.hasNext(); ) {
+            ScanPass pass = iterator.next();
+            if (!paused || !pass.periodic) {
+                iterator.remove();
+                currentPass = pass;
+                break;
+            }
+        }
+        if (currentPass == null) {
+            return false;
+        }
+
+        // Snapshot the chunks of the pass up front, so its length (and therefore its duration) is known
+        passWorlds.clear();
+        passChunks.clear();
+        int totalChunks = 0;
+        for (World world : Bukkit.getWorlds()) {
+            if (worldFilter.test(world)) {
+                long[] chunkKeys = currentPass.chunkSource.apply(world);
+                passWorlds.add(world.getUID());
+                passChunks.add(chunkKeys);
+                totalChunks += chunkKeys.length;
+            }
+        }
+
+        worldIndex = 0;
+        chunkIndex = 0;
+        inFlight = new AtomicInteger();
+        drainTicks = 0;
+
+        // Spread the pass over at most maxPassTicks ticks, whatever the budget says
+        chunksPerTickFloor = Math.max(1, (totalChunks + maxPassTicks - 1) / maxPassTicks);
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the next chunk, crossing into the next world when needed
+     * @return false once every world of the pass was visited
+     */
+    private boolean advanceCursor() {
+        while (worldIndex < passChunks.size() && chunkIndex >= passChunks.get(worldIndex).length) {
+            worldIndex++;
+            chunkIndex = 0;
+        }
+        return worldIndex < passChunks.size();
+    }
+
+    /**
+     * Puts the running pass back at the head of the queue; it starts over once it is picked again
+     */
+    private synchronized void suspendPass() {
+        pendingPasses.addFirst(currentPass);
+        currentPass = null;
+    }
+
+    private void finishPass() {
+        ScanPass finished;
+        synchronized (this) {
+            finished = currentPass;
+            currentPass = null;
+        }
+        if (finished.onComplete != null) {
+            finished.onComplete.run();
+        }
+    }
+}
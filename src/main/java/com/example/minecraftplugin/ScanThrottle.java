@@ -0,0 +1,190 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Adapts the periodic scans to the load of the server. Once a second it reads the average tick time (MSPT);
+ * between the relaxed threshold of the profile and the event-only threshold it stretches the interval of the
+ * periodic sweeps, shrinks the per-tick scan budget and lets the background sweep load fewer chunks at once.
+ * At the event-only threshold the periodic scans and the background sweep stop, and only the event checks
+ * protect the worlds until the tick time has dropped again; startup and manual scans keep running. The profile is chosen by end-ship.scan-intensity.
+ * Regionized servers have no single tick time, so there the scans always run at full speed.
+ * It runs as a global tick task, once per second.
+ */
+public class ScanThrottle implements Runnable {
+
+    /**
+     * How often and how hard the periodic scans run, chosen by end-ship.scan-intensity
+     */
+    public enum Profile {
+        BASIC(2.0, 12, 0.5, 30.0),
+        NORMAL(1.0, 6, 1.0, 35.0),
+        AGGRESSIVE(0.5, 12, 1.0, 40.0);
+
+        final double intervalFactor; // share of check-interval between two sweeps
+        final int sweepsPerFullScan; // every this many sweeps, a full scan runs instead
+        final double budgetFactor; // share of scan.tick-budget-nanos
+        final double relaxedMspt; // scans run at full speed up to this tick time
+
+        Profile(double intervalFactor, int sweepsPerFullScan, double budgetFactor, double relaxedMspt) {
+            this.intervalFactor = intervalFactor;
+            this.sweepsPerFullScan = sweepsPerFullScan;
+            this.budgetFactor = budgetFactor;
+            this.relaxedMspt = relaxedMspt;
+        }
+
+        /**
+         * @param scanIntensity 0 = basic, 1 = normal, 2 = aggressive; other values are clamped
+         */
+        public static Profile of(int scanIntensity) {
+            return values()[Math.max(0, Math.min(scanIntensity, values().length - 1))];
+        }
+    }
+
+    // Tick time must drop this far below the event-only threshold before the periodic scans resume
+    private static final double RESUME_MARGIN_MSPT = 5.0;
+
+    private final Logger logger;
+    private final ScanScheduler scanScheduler;
+    private final UnloadedChunkSweeper sweeper;
+    private final Runnable sweep;
+    private final Runnable fullScan;
+    private final boolean regionized;
+
+    // Settings
+    private volatile Profile profile = Profile.AGGRESSIVE;
+    private volatile boolean enabled = true;
+    private volatile int checkIntervalSeconds = 10;
+    private volatile double eventOnlyMspt = 45.0;
+    private volatile double maxSlowdown = 8.0;
+    private volatile long tickBudgetNanos = 2_000_000L;
+    private volatile long minTickBudgetNanos = 250_000L;
+    private volatile int maxPassTicks = 200;
+
+    // Last decision, shown by /elytraremover stats
+    private volatile double mspt;
+    private volatile double load;
+    private volatile boolean eventOnly;
+    private volatile int sweepIntervalSeconds;
+    private volatile long scanBudgetNanos;
+
+    // Global thread only; the first sweep and full scan come one interval after the start
+    private int secondsUntilSweep = Integer.MAX_VALUE;
+    private int sweepsUntilFullScan = Integer.MAX_VALUE;
+
+    /**
+     * @param logger Told when the periodic scans stop and resume
+     * @param scanScheduler The scan engine whose budget and pass bound are adapted
+     * @param sweeper The background sweep of unloaded chunks
+     * @param sweep Queues a sweep of the indexed chunks
+     * @param fullScan Queues a full scan of the indexed chunks
+     * @param regionized Whether the server ticks its regions separately, which disables the adaptation
+     */
+    public ScanThrottle(Logger logger, ScanScheduler scanScheduler, UnloadedChunkSweeper sweeper, Runnable sweep, Runnable fullScan,
+                        boolean regionized) {
+        this.logger = logger;
+        this.scanScheduler = scanScheduler;
+        this.sweeper = sweeper;
+        this.sweep = sweep;
+        this.fullScan = fullScan;
+        this.regionized = regionized;
+    }
+
+    /**
+     * Updates the settings and applies them right away
+     * @param profile The scan intensity profile
+     * @param enabled Whether the scans adapt to the tick time at all; if not, they always run at full speed
+     * @param checkIntervalSeconds Base interval between two sweeps, scaled by the profile
+     * @param eventOnlyMspt Tick time at which only the event checks keep running
+     * @param maxSlowdown How many times less often the sweeps run under the heaviest load
+     * @param tickBudgetNanos Base per-tick scan budget, scaled by the profile
+     * @param minTickBudgetNanos Per-tick scan budget under the heaviest load
+     * @param maxPassTicks Base pass duration bound of the scan engine, stretched like the sweep interval
+     */
+    public void configure(Profile profile, boolean enabled, int checkIntervalSeconds, double eventOnlyMspt, double maxSlowdown,
+                          long tickBudgetNanos, long minTickBudgetNanos, int maxPassTicks) {
+        if (enabled && regionized) {
+            logger.warning("Adaptive throttling is not supported on regionized servers and stays disabled");
+            enabled = false;
+        }
+        this.profile = profile;
+        this.enabled = enabled;
+        this.checkIntervalSeconds = Math.max(1, checkIntervalSeconds);
+        this.eventOnlyMspt = eventOnlyMspt;
+        this.maxSlowdown = Math.max(1.0, maxSlowdown);
+        this.tickBudgetNanos = Math.max(0L, tickBudgetNanos);
+        this.minTickBudgetNanos = Math.max(0L, minTickBudgetNanos);
+        this.maxPassTicks = Math.max(1, maxPassTicks);
+        sweepsUntilFullScan = Math.min(sweepsUntilFullScan, profile.sweepsPerFullScan);
+        adapt(mspt);
+    }
+
+    @Override
+    public void run() {
+        if (enabled) {
+            mspt = Bukkit.getAverageTickTime();
+        }
+        adapt(mspt);
+        if (eventOnly || --secondsUntilSweep > 0) {
+            return;
+        }
+
+        secondsUntilSweep = sweepIntervalSeconds;
+        if (--sweepsUntilFullScan <= 0) {
+            // The full scan covers every chunk a sweep would
+            sweepsUntilFullScan = profile.sweepsPerFullScan;
+            fullScan.run();
+        } else {
+            sweep.run();
+        }
+    }
+
+    /**
+     * Derives the scan settings from the tick time
+     */
+    private void adapt(double mspt) {
+        Profile profile = this.profile;
+        boolean wasEventOnly = eventOnly;
+        if (!enabled) {
+            load = 0.0;
+            eventOnly = false;
+        } else {
+            eventOnly = wasEventOnly ? mspt >= eventOnlyMspt - RESUME_MARGIN_MSPT : mspt >= eventOnlyMspt;
+            double range = eventOnlyMspt - profile.relaxedMspt;
+            load = range <= 0.0 ? (mspt > profile.relaxedMspt ? 1.0 : 0.0)
+                                : Math.max(0.0, Math.min(1.0, (mspt - profile.relaxedMspt) / range));
+        }
+        if (eventOnly != wasEventOnly) {
+            if (eventOnly) {
+                logger.warning(String.format(Locale.ROOT, "Average tick time is %.1f ms: periodic scans paused, only event checks run", mspt));
+            } else {
+                logger.info(String.format(Locale.ROOT, "Average tick time is back to %.1f ms: periodic scans resumed", mspt));
+            }
+        }
+
+        double slowdown = 1.0 + load * (maxSlowdown - 1.0);
+        long fullBudget = Math.round(tickBudgetNanos * profile.budgetFactor);
+        scanBudgetNanos = fullBudget - Math.round(load * Math.max(0L, fullBudget - minTickBudgetNanos));
+        scanScheduler.configure(scanBudgetNanos, (int) Math.round(maxPassTicks * slowdown));
+        scanScheduler.setPaused(eventOnly);
+        sweeper.throttle(eventOnly ? 0.0 : 1.0 - load);
+
+        // A shorter interval takes effect right away, rather than after the longer one ran out
+        sweepIntervalSeconds = Math.max(1, (int) Math.round(checkIntervalSeconds * profile.intervalFactor * slowdown));
+        secondsUntilSweep = Math.min(secondsUntilSweep, sweepIntervalSeconds);
+    }
+
+    /**
+     * @return a human readable summary for /elytraremover stats
+     */
+    public String getStatus() {
+        if (eventOnly) {
+            return String.format(Locale.ROOT, "%s profile, MSPT %.1f, periodic scans paused (event checks only)", profile, mspt);
+        }
+        return String.format(Locale.ROOT, "%s profile, MSPT %.1f, load %.0f%%, sweep every %ds, full scan every %ds, budget %.3f ms/tick",
+            profile, mspt, load * 100.0, sweepIntervalSeconds, sweepIntervalSeconds * profile.sweepsPerFullScan, scanBudgetNanos / 1e6);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Classifies chunks as End City ship chunks by their blocks, off the tick threads.
+ * The first time a chunk is asked about, its blocks are captured as a {@link ChunkSnapshot} on the thread
+ * owning the chunk and counted on a small worker pool: a chunk with at least {@code minShipBlocks} purpur or
+ * end rod blocks within the ship Y range holds a ship. Results are kept as three bitsets (known / ship /
+ * pending) per 32x32 chunk region until the settings change. A chunk counts as holding no ship while it is
+ * being classified; if it turns out to hold one, the callback is run on the thread owning it.
+ * The worker pool is only started once a chunk has to be classified.
+ */
+public class ShipClassifier {
+
+    /**
+     * Called on the thread owning a chunk once it was classified as holding a ship
+     */
+    @FunctionalInterface
+    public interface ShipFound {
+        void found(World world, int chunkX, int chunkZ);
+    }
+
+    // The block signature of End City ships
+    private static final Set<Material> SHIP_MATERIALS = EnumSet.of(
+        Material.PURPUR_BLOCK, Material.PURPUR_PILLAR, Material.PURPUR_STAIRS, Material.END_ROD);
+
+    // 32 x 32 chunks per region, 64 chunks per long
+    private static final int REGION_WORDS = 32 * 32 / 64;
+
+    private final ScanMetrics metrics;
+    private final TaskDispatcher dispatcher;
+    private final ShipFound onShip;
+    private final Map<UUID, Map<Long, long[]>> worlds = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+    private volatile int minShipBlocks = 32;
+    private volatile int minY = Integer.MIN_VALUE;
+    private volatile int maxY = Integer.MAX_VALUE;
+
+    // Bumped whenever the settings change, so results computed under the old ones are dropped
+    private volatile int generation;
+    private volatile ExecutorService workers;
+    private int workerCount;
+    private int threads = 2;
+    private boolean stopped;
+
+    public ShipClassifier(ScanMetrics metrics, TaskDispatcher dispatcher, ShipFound onShip) {
+        this.metrics = metrics;
+        this.dispatcher = dispatcher;
+        this.onShip = onShip;
+    }
+
+    /**
+     * Updates the settings; a different threshold or Y range forgets every classification
+     * @param enabled Whether chunks are classified at all; if not, every chunk counts as a ship chunk
+     * @param shipsOnlyRules Whether any rule is limited to ships; if not, no chunk is asked about and the pool is stopped
+     * @param minShipBlocks Number of ship blocks from which a chunk holds a ship
+     * @param threads Size of the worker pool
+     * @param minY Lowest Y of the ship blocks counted
+     * @param maxY Highest Y of the ship blocks counted
+     */
+    public synchronized void configure(boolean enabled, boolean shipsOnlyRules, int minShipBlocks, int threads, int minY, int maxY) {
+        if (minShipBlocks != this.minShipBlocks || minY != this.minY || maxY != this.maxY) {
+            this.minShipBlocks = minShipBlocks;
+            this.minY = minY;
+            this.maxY = maxY;
+            generation++;
+            worlds.clear();
+        }
+        this.enabled = enabled;
+        this.threads = Math.max(1, threads);
+
+        // The next chunk to classify starts a pool of the right size, if any is needed at all
+        if (workers != null && (!enabled || !shipsOnlyRules || workerCount != this.threads)) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+
+    /**
+     * @return the worker pool, started on first use; null once the classifier was shut down
+     */
+    private synchronized ExecutorService getWorkers() {
+        if (workers == null && !stopped) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "ElytraRemover-ShipClassifier-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            workerCount = threads;
+        }
+        return workers;
+    }
+
+    /**
+     * Checks whether a chunk holds a ship, starting its classification on first use.
+     * Must be called on the thread owning the chunk.
+     * @param chunk A loaded chunk
+     * @return true if the chunk was classified as holding a ship; false if it holds none or is still being classified
+     */
+    public boolean isShip(Chunk chunk) {
+        if (!enabled) {
+            return true;
+        }
+        World world = chunk.getWorld();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        long[] region = worlds.computeIfAbsent(world.getUID(), uid -> new ConcurrentHashMap<>())
+            .computeIfAbsent(Chunk.getChunkKey(chunkX >> 5, chunkZ >> 5), key -> new long[REGION_WORDS * 3]);
+        int bit = (chunkX & 31) | ((chunkZ & 31) << 5);
+        int word = bit >> 6;
+        long mask = 1L << bit;
+        synchronized (region) {
+            if ((region[word] & mask) != 0) {
+                return (region[REGION_WORDS + word] & mask) != 0;
+            }
+            if ((region[REGION_WORDS * 2 + word] & mask) != 0) {
+                return false;
+            }
+            region[REGION_WORDS * 2 + word] |= mask;
+        }
+
+        ExecutorService pool = workers;
+        if (pool == null && (pool = getWorkers()) == null) {
+            synchronized (region) {
+                region[REGION_WORDS * 2 + word] &= ~mask;
+            }
+            return false;
+        }
+
+        // Only the block palettes are copied here, the blocks are counted on a worker
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        int fromY = Math.max(minY, world.getMinHeight());
+        int toY = Math.min(maxY, world.getMaxHeight() - 1);
+        int worldMinSection = world.getMinHeight() >> 4;
+        int threshold = minShipBlocks;
+        int snapshotGeneration = generation;
+        try {
+            pool.execute(() -> {
+                long start = System.nanoTime();
+                boolean ship = countShipBlocks(snapshot, fromY, toY, worldMinSection, threshold) >= threshold;
+                metrics.record(ScanMetrics.Timer.SHIP_CLASSIFY, start);
+                if (snapshotGeneration != generation) {
+                    return;
+                }
+                synchronized (region) {
+                    region[word] |= mask;
+                    if (ship) {
+                        region[REGION_WORDS + word] |= mask;
+                    }
+                    region[REGION_WORDS * 2 + word] &= ~mask;
+                }
+                metrics.increment(ScanMetrics.Counter.CHUNKS_CLASSIFIED);
+                if (ship) {
+                    metrics.increment(ScanMetrics.Counter.SHIP_CHUNKS);
+                    dispatcher.runAtChunk(world, chunkX, chunkZ, () -> onShip.found(world, chunkX, chunkZ));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool was replaced or shut down in the meantime; the chunk is classified the next time it is asked about
+            synchronized (region) {
+                region[REGION_WORDS * 2 + word] &= ~mask;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the ship blocks of a snapshot between two Y levels, skipping empty sections
+     * @return the count, or the threshold as soon as it is reached
+     */
+    private static int countShipBlocks(ChunkSnapshot snapshot, int fromY, int toY, int worldMinSection, int threshold) {
+        int count = 0;
+        for (int sectionY = fromY >> 4; sectionY <= toY >> 4; sectionY++) {
+            if (snapshot.isSectionEmpty(sectionY - worldMinSection)) {
+                continue;
+            }
+            int sectionFrom = Math.max(fromY, sectionY << 4);
+            int sectionTo = Math.min(toY, (sectionY << 4) + 15);
+            for (int y = sectionFrom; y <= sectionTo; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (SHIP_MATERIALS.contains(snapshot.getBlockType(x, y, z)) && ++count >= threshold) {
+                            return count;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops the worker pool; classifications still queued are dropped
+     */
+    public synchronized void shutdown() {
+        stopped = true;
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+}
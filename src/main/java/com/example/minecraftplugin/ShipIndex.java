@@ -0,0 +1,224 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.generator.structure.GeneratedStructure;
+import org.bukkit.generator.structure.Structure;
+import org.bukkit.generator.structure.StructurePiece;
+import org.bukkit.util.BoundingBox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cached index of the chunks that can contain an End City ship.
+ * Chunks are classified once from the End City bounding boxes reported by the server's structure API,
+ * narrowed to the configured Y range, and stored as two bitsets (known / may contain a ship) per
+ * 32x32 chunk region. The index is persisted per world together with the world seed and Y range,
+ * so a different world or range invalidates it.
+ */
+public class ShipIndex {
+
+    private static final int MAGIC = 0x45525348; // "ERSH"
+    private static final int FORMAT_VERSION = 1;
+
+    // 32 x 32 chunks per region, 64 chunks per long
+    private static final int REGION_WORDS = 32 * 32 / 64;
+
+    /**
+     * Index of one world. Each region array holds the "known" bits followed by the "ship" bits.
+     */
+    private static final class WorldIndex {
+        final long seed;
+        final Map<Long, long[]> regions = new ConcurrentHashMap<>();
+        volatile boolean dirty;
+
+        WorldIndex(long seed) {
+            this.seed = seed;
+        }
+    }
+
+    private final Logger logger;
+    private final File folder;
+    private final Map<UUID, WorldIndex> worlds = new ConcurrentHashMap<>();
+
+    private volatile int minY = Integer.MIN_VALUE;
+    private volatile int maxY = Integer.MAX_VALUE;
+
+    public ShipIndex(Logger logger, File folder) {
+        this.logger = logger;
+        this.folder = folder;
+    }
+
+    /**
+     * Sets the Y range ships are looked for in. Changing it forgets every classification.
+     * @param minY Lowest Y a ship piece may reach down to
+     * @param maxY Highest Y a ship piece may reach up to
+     */
+    public void configure(int minY, int maxY) {
+        if (minY != this.minY || maxY != this.maxY) {
+            this.minY = minY;
+            this.maxY = maxY;
+            worlds.clear();
+        }
+    }
+
+    /**
+     * Checks whether a chunk may contain part of an End City ship, classifying it on first use
+     * @param chunk A loaded chunk
+     * @return false if the chunk certainly holds no End City piece within the Y range
+     */
+    public boolean mayContainShip(Chunk chunk) {
+        WorldIndex index = getWorldIndex(chunk.getWorld());
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        long[] region = index.regions.computeIfAbsent(Chunk.getChunkKey(chunkX >> 5, chunkZ >> 5), key -> new long[REGION_WORDS * 2]);
+
+        int bit = (chunkX & 31) | ((chunkZ & 31) << 5);
+        synchronized (region) {
+            if ((region[bit >> 6] & (1L << bit)) != 0) {
+                return (region[REGION_WORDS + (bit >> 6)] & (1L << bit)) != 0;
+            }
+        }
+
+        // Mark every chunk covered by a piece within the Y range; the pieces may reach into neighbouring chunks
+        for (GeneratedStructure structure : chunk.getStructures(Structure.END_CITY)) {
+            for (StructurePiece piece : structure.getPieces()) {
+                BoundingBox box = piece.getBoundingBox();
+                if (box.getMaxY() < minY || box.getMinY() > maxY) {
+                    continue;
+                }
+                int minChunkX = (int) Math.floor(box.getMinX()) >> 4;
+                int maxChunkX = (int) Math.floor(box.getMaxX()) >> 4;
+                int minChunkZ = (int) Math.floor(box.getMinZ()) >> 4;
+                int maxChunkZ = (int) Math.floor(box.getMaxZ()) >> 4;
+                for (int x = minChunkX; x <= maxChunkX; x++) {
+                    for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                        mark(index, x, z, true);
+                    }
+                }
+            }
+        }
+
+        // Whatever was not marked above holds no piece: remember that too
+        mark(index, chunkX, chunkZ, false);
+        index.dirty = true;
+
+        synchronized (region) {
+            return (region[REGION_WORDS + (bit >> 6)] & (1L << bit)) != 0;
+        }
+    }
+
+    private static void mark(WorldIndex index, int chunkX, int chunkZ, boolean ship) {
+        long[] region = index.regions.computeIfAbsent(Chunk.getChunkKey(chunkX >> 5, chunkZ >> 5), key -> new long[REGION_WORDS * 2]);
+        int bit = (chunkX & 31) | ((chunkZ & 31) << 5);
+        synchronized (region) {
+            region[bit >> 6] |= 1L << bit;
+            if (ship) {
+                region[REGION_WORDS + (bit >> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * @param y A block Y coordinate
+     * @return true if the Y coordinate is within the ship Y range
+     */
+    public boolean isWithinShipRange(int y) {
+        return y >= minY && y <= maxY;
+    }
+
+    private WorldIndex getWorldIndex(World world) {
+        return worlds.computeIfAbsent(world.getUID(), uid -> load(world));
+    }
+
+    /**
+     * Loads the persisted index of a world, or starts an empty one if it is missing or stale
+     */
+    private WorldIndex load(World world) {
+        WorldIndex index = new WorldIndex(world.getSeed());
+        File file = getFile(world.getUID());
+        if (!file.exists()) {
+            return index;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != index.seed ||
+                in.readInt() != minY || in.readInt() != maxY) {
+                logger.info("Ship index of " + world.getName() + " is outdated, rebuilding it");
+                return index;
+            }
+
+            int regionCount = in.readInt();
+            for (int i = 0; i < regionCount; i++) {
+                long regionKey = in.readLong();
+                long[] region = new long[REGION_WORDS * 2];
+                for (int word = 0; word < region.length; word++) {
+                    region[word] = in.readLong();
+                }
+                index.regions.put(regionKey, region);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read the ship index of " + world.getName() + ", rebuilding it", e);
+            index.regions.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index of every world that changed since it was last saved
+     */
+    public void saveAll() {
+        for (Map.Entry<UUID, WorldIndex> entry : worlds.entrySet()) {
+            WorldIndex index = entry.getValue();
+            if (!index.dirty) {
+                continue;
+            }
+            index.dirty = false;
+
+            File file = getFile(entry.getKey());
+            File temporary = new File(folder, file.getName() + ".tmp");
+            try {
+                Files.createDirectories(folder.toPath());
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeLong(index.seed);
+                    out.writeInt(minY);
+                    out.writeInt(maxY);
+                    out.writeInt(index.regions.size());
+                    for (Map.Entry<Long, long[]> region : index.regions.entrySet()) {
+                        out.writeLong(region.getKey());
+                        long[] words = region.getValue();
+                        synchronized (words) {
+                            for (long word : words) {
+                                out.writeLong(word);
+                            }
+                        }
+                    }
+                }
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                index.dirty = true;
+                logger.log(Level.WARNING, "Could not save the ship index to " + file.getName(), e);
+            }
+        }
+    }
+
+    private File getFile(UUID worldId) {
+        return new File(folder, worldId + ".dat");
+    }
+}
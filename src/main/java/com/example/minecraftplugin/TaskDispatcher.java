@@ -0,0 +1,95 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Schedules the plugin's work on the thread that owns it: the global tick for plugin-wide tasks,
+ * the region owning a chunk for chunk and item frame work, and the entity's own scheduler for
+ * work on a single entity. On Paper everything ends up on the main thread; on a regionized
+ * (Folia) server chunk work of different regions runs in parallel.
+ */
+public interface TaskDispatcher {
+
+    /**
+     * A scheduled task that can be cancelled
+     */
+    @FunctionalInterface
+    interface TaskHandle {
+        void cancel();
+    }
+
+    /**
+     * @return true if chunk work may run on several threads at once
+     */
+    boolean isRegionized();
+
+    /**
+     * Runs a plugin-wide task after a delay
+     * @param task The task
+     * @param delayTicks Delay in ticks, at least 1
+     */
+    TaskHandle runGlobalLater(Runnable task, long delayTicks);
+
+    /**
+     * Runs a plugin-wide task repeatedly
+     * @param task The task
+     * @param delayTicks Delay before the first run in ticks, at least 1
+     * @param periodTicks Ticks between runs, at least 1
+     */
+    TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task on the thread owning a chunk
+     * @param world The world of the chunk
+     * @param chunkX X coordinate of the chunk
+     * @param chunkZ Z coordinate of the chunk
+     * @param task The task
+     */
+    void runAtChunk(World world, int chunkX, int chunkZ, Runnable task);
+
+    /**
+     * Runs a task on the thread owning a chunk after a delay
+     * @param delayTicks Delay in ticks, at least 1
+     */
+    TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks);
+
+    /**
+     * Runs a task on the thread owning an entity after a delay; nothing runs if the entity is removed first
+     * @param entity The entity
+     * @param task The task
+     * @param delayTicks Delay in ticks, at least 1
+     */
+    void runAtEntityLater(Entity entity, Runnable task, long delayTicks);
+
+    /**
+     * Runs a task off the tick threads once, as soon as possible, e.g. for file output
+     */
+    void runAsync(Runnable task);
+
+    /**
+     * Runs a task off the tick threads repeatedly, e.g. for file output
+     * @param delayTicks Delay before the first run, in ticks
+     * @param periodTicks Time between runs, in ticks
+     */
+    TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * @return true if the current thread may touch the entity
+     */
+    boolean isOwnedByCurrentThread(Entity entity);
+
+    /**
+     * Picks the region schedulers on a regionized server and the Bukkit scheduler otherwise
+     * @param plugin The plugin owning the tasks
+     */
+    static TaskDispatcher create(Plugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return new RegionTaskDispatcher(plugin);
+        } catch (ClassNotFoundException e) {
+            return new BukkitTaskDispatcher(plugin);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.minecraftplugin;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map of primitive long keys to the tick they are due on (plus an optional value),
+ * with a timing wheel of the keys due on each tick, so due entries are found without a full scan.
+ * Lookups allocate nothing and the table never grows past its cap. Not thread-safe.
+ */
+final class TimedKeyTable {
+
+    /**
+     * Keys and values of the entries taken by {@link #drain}, reused between ticks
+     */
+    static final class Due {
+        long[] keys = new long[64];
+        Object[] values = new Object[64];
+        int size;
+
+        void add(long key, Object value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size++] = value;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+    }
+
+    // Bucket arrays larger than this are shrunk again once drained, so a burst does not pin memory
+    private static final int BUCKET_SHRINK_LENGTH = 256;
+
+    private final boolean withValues;
+    private final int wheelMask;
+    private final long[][] wheel;
+    private final int[] wheelSizes;
+
+    private long[] keys;
+    private long[] dueTicks;
+    private Object[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int maxEntries;
+
+    /**
+     * @param maxEntries Maximum number of entries
+     * @param wheelSize Number of wheel slots, a power of two; due ticks must stay less than this far ahead
+     * @param withValues Whether a value is stored with each key
+     */
+    TimedKeyTable(int maxEntries, int wheelSize, boolean withValues) {
+        this.withValues = withValues;
+        this.wheelMask = wheelSize - 1;
+        this.wheel = new long[wheelSize][];
+        this.wheelSizes = new int[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new long[8];
+        }
+        allocate(Math.max(1, maxEntries));
+    }
+
+    private void allocate(int maxEntries) {
+        // Keep the table at most half full
+        int capacity = Integer.highestOneBit(Math.max(8, maxEntries * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.dueTicks = new long[capacity];
+        this.values = withValues ? new Object[capacity] : null;
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Changes the cap, keeping the entries that still fit
+     */
+    void resize(int maxEntries) {
+        maxEntries = Math.max(1, maxEntries);
+        if (maxEntries == this.maxEntries) {
+            return;
+        }
+        long[] oldKeys = keys;
+        long[] oldDueTicks = dueTicks;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(maxEntries);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] && size < maxEntries) {
+                insert(oldKeys[i], oldDueTicks[i], oldValues != null ? oldValues[i] : null);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Adds a key, or moves a pending key to the later of its due ticks
+     * @return 1 if the key was added, 0 if it was already present, -1 if the table is full
+     */
+    int schedule(long key, Object value, long dueTick) {
+        int index = find(key);
+        if (index >= 0) {
+            if (dueTick > dueTicks[index]) {
+                dueTicks[index] = dueTick;
+                addToWheel(key, dueTick);
+            }
+            if (withValues) {
+                values[index] = value;
+            }
+            return 0;
+        }
+        if (size >= maxEntries) {
+            return -1;
+        }
+        insert(key, dueTick, value);
+        addToWheel(key, dueTick);
+        return 1;
+    }
+
+    /**
+     * @return true if the key was present
+     */
+    boolean remove(long key) {
+        int index = find(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        if (withValues) {
+            Arrays.fill(values, null);
+        }
+        Arrays.fill(wheelSizes, 0);
+        size = 0;
+    }
+
+    /**
+     * Removes every entry due on a tick
+     * @param tick The tick, drained once and in order
+     * @param due Collects the keys and values of the removed entries, may be null
+     */
+    void drain(long tick, Due due) {
+        int slot = (int) (tick & wheelMask);
+        long[] bucket = wheel[slot];
+        for (int i = 0; i < wheelSizes[slot]; i++) {
+            int index = find(bucket[i]);
+            // Entries that were postponed or removed leave stale keys in the bucket; an entry scheduled for
+            // a tick that was already drained (a race with the caller's clock) is taken on the next turn
+            if (index >= 0 && dueTicks[index] <= tick) {
+                if (due != null) {
+                    due.add(keys[index], withValues ? values[index] : null);
+                }
+                removeAt(index);
+            }
+        }
+        if (bucket.length > BUCKET_SHRINK_LENGTH) {
+            wheel[slot] = new long[8];
+        }
+        wheelSizes[slot] = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long key) {
+        int index = hash(key) & mask;
+        while (used[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, long dueTick, Object value) {
+        int index = hash(key) & mask;
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        keys[index] = key;
+        dueTicks[index] = dueTick;
+        if (withValues) {
+            values[index] = value;
+        }
+        size++;
+    }
+
+    /**
+     * Removes a slot, shifting back the entries of its probe sequence so lookups stay correct
+     */
+    private void removeAt(int index) {
+        used[index] = false;
+        if (withValues) {
+            values[index] = null;
+        }
+        size--;
+
+        int next = (index + 1) & mask;
+        while (used[next]) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the hole unless its home slot lies between the hole and its current slot
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                used[index] = true;
+                keys[index] = keys[next];
+                dueTicks[index] = dueTicks[next];
+                if (withValues) {
+                    values[index] = values[next];
+                    values[next] = null;
+                }
+                used[next] = false;
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void addToWheel(long key, long dueTick) {
+        int slot = (int) (dueTick & wheelMask);
+        if (wheelSizes[slot] == wheel[slot].length) {
+            wheel[slot] = Arrays.copyOf(wheel[slot], wheel[slot].length * 2);
+        }
+        wheel[slot][wheelSizes[slot]++] = key;
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * Opt-in background sweep of every generated End chunk, including the ones nobody has loaded in years.
+ * Chunks holding entity data are enumerated from the headers of the world's entity region files and
+ * loaded through Paper's async chunk loading, a bounded number at a time, and held until the removals
+ * found in them were applied. Progress is saved to
+ * sweeper-progress.yml, off the tick thread, so the sweep resumes after a restart from the oldest chunk
+ * it had not finished, and it backs off while players are online or the server is under load.
+ * It runs as a global tick task and is not available on regionized servers, where chunks
+ * of any region cannot be loaded and inspected from the global thread.
+ */
+public class UnloadedChunkSweeper implements Runnable {
+
+    // Chunks per region file, as laid out in the region header
+    private static final int REGION_SLOTS = 32 * 32;
+
+    // Give up on a chunk whose entities are still not loaded after this many ticks
+    private static final int MAX_ENTITY_WAIT_TICKS = 100;
+
+    // Save progress after this many chunks were swept
+    private static final int SAVE_INTERVAL_CHUNKS = 256;
+
+    /**
+     * Resumable position of the sweep in one world
+     */
+    private static final class WorldCursor {
+        final String worldName;
+        File[] regionFiles;
+        int regionIndex;
+        int slot;
+        boolean[] presentSlots;
+        boolean done;
+
+        // Positions of the chunks loading or held, oldest first; the sweep resumes from the oldest
+        final TreeSet<Long> inFlight = new TreeSet<>();
+
+        WorldCursor(String worldName) {
+            this.worldName = worldName;
+        }
+    }
+
+    /**
+     * A chunk that was loaded by the sweep, until its entities were scanned and the removals found applied
+     */
+    private static final class PendingChunk {
+        final Chunk chunk;
+        final WorldCursor cursor;
+        final long position;
+        int waitedTicks;
+        long scannedAtBatch = -1; // removal pipeline batch count when the chunk was scanned
+
+        PendingChunk(Chunk chunk, WorldCursor cursor, long position) {
+            this.chunk = chunk;
+            this.cursor = cursor;
+            this.position = position;
+        }
+    }
+
+    private final ElytraRemoverPlugin plugin;
+    private final File progressFile;
+    private final YamlConfiguration progress;
+    private final Map<UUID, WorldCursor> cursors = new HashMap<>();
+    private final List<PendingChunk> pendingChunks = new ArrayList<>();
+
+    // Latest progress snapshot not written yet; the writer always takes the newest
+    private final AtomicReference<String> unsavedProgress = new AtomicReference<>();
+
+    private boolean enabled;
+    private int maxInFlight = 4;
+    private boolean pauseWhenPlayersOnline = true;
+    private double maxMspt = 40.0;
+    private volatile double throttleShare = 1.0;
+
+    private int inFlight;
+    private int sweptSinceSave;
+    private long sweptTotal;
+
+    public UnloadedChunkSweeper(ElytraRemoverPlugin plugin) {
+        this.plugin = plugin;
+        this.progressFile = new File(plugin.getDataFolder(), "sweeper-progress.yml");
+        this.progress = YamlConfiguration.loadConfiguration(progressFile);
+    }
+
+    /**
+     * Updates the sweep settings
+     * @param enabled Whether the sweep runs at all
+     * @param maxInFlight Maximum number of chunks loading or waiting for their entities at once
+     * @param pauseWhenPlayersOnline Whether the sweep pauses while any player is online
+     * @param maxMspt The sweep pauses while the average tick time is above this, in milliseconds
+     */
+    public void configure(boolean enabled, int maxInFlight, boolean pauseWhenPlayersOnline, double maxMspt) {
+        if (enabled && plugin.getTaskDispatcher().isRegionized()) {
+            plugin.getLogger().warning("The background sweep is not supported on regionized servers and stays disabled");
+            enabled = false;
+        }
+        this.enabled = enabled;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.pauseWhenPlayersOnline = pauseWhenPlayersOnline;
+        this.maxMspt = maxMspt;
+    }
+
+    /**
+     * Scales the number of chunks loaded at once, for the adaptive scan throttle
+     * @param share Share of max-in-flight to use, 0 to pause the sweep
+     */
+    public void throttle(double share) {
+        this.throttleShare = share;
+    }
+
+    @Override
+    public void run() {
+        checkPendingChunks();
+
+        double share = throttleShare;
+        if (!enabled || share <= 0.0 || shouldBackOff()) {
+            return;
+        }
+        int limit = Math.max(1, (int) Math.round(maxInFlight * share));
+
+        for (World world : Bukkit.getWorlds()) {
+            if (!plugin.getRules().appliesTo(world)) {
+                continue;
+            }
+
+            WorldCursor cursor = getCursor(world);
+            while (!cursor.done && inFlight < limit) {
+                long chunkKey = nextChunk(cursor);
+                if (cursor.done) {
+                    // Otherwise the last chunk still in flight completes the world
+                    if (cursor.inFlight.isEmpty()) {
+                        complete(cursor);
+                    }
+                    break;
+                }
+                sweepChunk(world, cursor, (int) chunkKey, (int) (chunkKey >> 32));
+            }
+
+            if (inFlight >= limit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the sweep should not start loading new chunks this tick
+     */
+    private boolean shouldBackOff() {
+        if (pauseWhenPlayersOnline && !Bukkit.getOnlinePlayers().isEmpty()) {
+            return true;
+        }
+        return Bukkit.getAverageTickTime() > maxMspt;
+    }
+
+    private void sweepChunk(World world, WorldCursor cursor, int chunkX, int chunkZ) {
+        // Loaded chunks are already covered by the regular scans
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            countSwept();
+            return;
+        }
+
+        // The slot nextChunk just returned
+        long position = (long) cursor.regionIndex << 32 | (cursor.slot - 1);
+        cursor.inFlight.add(position);
+        inFlight++;
+        world.getChunkAtAsync(chunkX, chunkZ, false).whenComplete((chunk, error) -> {
+            if (error != null || chunk == null) {
+                release(cursor, position);
+                if (error != null) {
+                    plugin.getLogger().log(Level.FINE, "Background sweep could not load chunk " + chunkX + ", " + chunkZ, error);
+                }
+                return;
+            }
+
+            // Keep the chunk loaded until its entities are available
+            chunk.addPluginChunkTicket(plugin);
+            pendingChunks.add(new PendingChunk(chunk, cursor, position));
+            checkPendingChunks();
+        });
+    }
+
+    private void checkPendingChunks() {
+        Iterator<PendingChunk> iterator = pendingChunks.iterator();
+        while (iterator.hasNext()) {
+            PendingChunk pending = iterator.next();
+            if (pending.scannedAtBatch < 0) {
+                boolean entitiesLoaded = pending.chunk.isEntitiesLoaded();
+                if (!entitiesLoaded && ++pending.waitedTicks < MAX_ENTITY_WAIT_TICKS) {
+                    continue;
+                }
+                if (entitiesLoaded) {
+                    // Keep the chunk loaded until the removals the scan queued were applied by the next batch;
+                    // a frame that unloads before is skipped by the batch, and its elytra would stay
+                    plugin.scanChunkForEndShips(pending.chunk);
+                    pending.scannedAtBatch = plugin.getRemovalPipeline().getBatches();
+                    continue;
+                }
+            } else if (plugin.getRemovalPipeline().getBatches() <= pending.scannedAtBatch) {
+                continue;
+            }
+
+            pending.chunk.removePluginChunkTicket(plugin);
+            iterator.remove();
+            countSwept();
+            release(pending.cursor, pending.position);
+        }
+    }
+
+    /**
+     * Forgets a chunk that is no longer in flight, completing its world if it was the last one
+     */
+    private void release(WorldCursor cursor, long position) {
+        inFlight--;
+        if (cursor.inFlight.remove(position) && cursor.done && cursor.inFlight.isEmpty() && cursors.containsValue(cursor)) {
+            complete(cursor);
+        }
+    }
+
+    private void complete(WorldCursor cursor) {
+        plugin.getLogger().info("Background sweep of " + cursor.worldName + " complete (" + sweptTotal + " chunks swept)");
+        saveProgress();
+    }
+
+    private void countSwept() {
+        sweptTotal++;
+        if (++sweptSinceSave >= SAVE_INTERVAL_CHUNKS) {
+            saveProgress();
+        }
+    }
+
+    private WorldCursor getCursor(World world) {
+        return cursors.computeIfAbsent(world.getUID(), uid -> {
+            WorldCursor cursor = new WorldCursor(world.getName());
+            cursor.regionFiles = listRegionFiles(world);
+
+            // Resume from the saved position
+            String path = uid.toString();
+            cursor.done = progress.getBoolean(path + ".done", false);
+            String savedRegion = progress.getString(path + ".region");
+            if (savedRegion != null) {
+                for (int i = 0; i < cursor.regionFiles.length; i++) {
+                    if (cursor.regionFiles[i].getName().compareTo(savedRegion) >= 0) {
+                        cursor.regionIndex = i;
+                        cursor.slot = cursor.regionFiles[i].getName().equals(savedRegion) ? progress.getInt(path + ".slot", 0) : 0;
+                        break;
+                    }
+                    cursor.regionIndex = i + 1;
+                }
+            }
+            return cursor;
+        });
+    }
+
+    /**
+     * Lists the entity region files of a world, in a stable order
+     */
+    private File[] listRegionFiles(World world) {
+        File[] files = getEntitiesFolder(world).listFiles((dir, name) -> name.startsWith("r.") && name.endsWith(".mca"));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * @return the folder holding the entity region files of a world, which depends on its dimension
+     */
+    private static File getEntitiesFolder(World world) {
+        switch (world.getEnvironment()) {
+            case THE_END:
+                return new File(world.getWorldFolder(), "DIM1/entities");
+            case NETHER:
+                return new File(world.getWorldFolder(), "DIM-1/entities");
+            default:
+                return new File(world.getWorldFolder(), "entities");
+        }
+    }
+
+    /**
+     * Advances a cursor to the next chunk that has entity data
+     * @return the chunk key of that chunk, meaningless once the cursor is done
+     */
+    private long nextChunk(WorldCursor cursor) {
+        while (cursor.regionIndex < cursor.regionFiles.length) {
+            File regionFile = cursor.regionFiles[cursor.regionIndex];
+            if (cursor.presentSlots == null) {
+                cursor.presentSlots = readPresentSlots(regionFile);
+            }
+
+            while (cursor.slot < REGION_SLOTS) {
+                int slot = cursor.slot++;
+                if (cursor.presentSlots[slot]) {
+                    int[] region = parseRegionCoordinates(regionFile.getName());
+                    return Chunk.getChunkKey(region[0] * 32 + (slot & 31), region[1] * 32 + (slot >> 5));
+                }
+            }
+
+            cursor.regionIndex++;
+            cursor.slot = 0;
+            cursor.presentSlots = null;
+        }
+
+        cursor.done = true;
+        return 0L;
+    }
+
+    /**
+     * Reads the location table of a region file to find which chunks have data
+     */
+    private boolean[] readPresentSlots(File regionFile) {
+        boolean[] present = new boolean[REGION_SLOTS];
+        try (RandomAccessFile file = new RandomAccessFile(regionFile, "r")) {
+            if (file.length() < REGION_SLOTS * 4L) {
+                return present;
+            }
+            byte[] header = new byte[REGION_SLOTS * 4];
+            file.readFully(header);
+            for (int slot = 0; slot < REGION_SLOTS; slot++) {
+                int offset = slot * 4;
+                present[slot] = (header[offset] | header[offset + 1] | header[offset + 2] | header[offset + 3]) != 0;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Background sweep could not read " + regionFile.getName(), e);
+        }
+        return present;
+    }
+
+    /**
+     * Parses "r.X.Z.mca" into {X, Z}
+     */
+    private static int[] parseRegionCoordinates(String name) {
+        String[] parts = name.split("\\.");
+        return new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+    }
+
+    /**
+     * Restarts the sweep of every world from the beginning
+     */
+    public void reset() {
+        cursors.clear();
+        for (String key : progress.getKeys(false)) {
+            progress.set(key, null);
+        }
+        saveProgress();
+    }
+
+    /**
+     * @return a short human readable status of the sweep
+     */
+    public String getStatus() {
+        StringBuilder status = new StringBuilder(enabled ? "enabled" : "disabled");
+        status.append(", ").append(sweptTotal).append(" chunks swept this session, ").append(inFlight).append(" in flight");
+        for (World world : Bukkit.getWorlds()) {
+            WorldCursor cursor = cursors.get(world.getUID());
+            if (cursor != null) {
+                status.append("; ").append(world.getName()).append(": ");
+                status.append(cursor.done ? "done" : "region " + Math.min(cursor.regionIndex + 1, cursor.regionFiles.length) + "/" + cursor.regionFiles.length);
+            }
+        }
+        return status.toString();
+    }
+
+    /**
+     * Saves the position of every cursor and releases the chunks the sweep still holds
+     */
+    public void shutdown() {
+        // Saved before the chunks are forgotten, so the ones still in flight are swept again after a restart
+        snapshotProgress();
+        for (PendingChunk pending : pendingChunks) {
+            pending.chunk.removePluginChunkTicket(plugin);
+        }
+        pendingChunks.clear();
+        // The plugin is going away, so the file is written right here
+        writeProgress();
+    }
+
+    /**
+     * Saves the position of every cursor, off the tick thread
+     */
+    private void saveProgress() {
+        snapshotProgress();
+        plugin.getTaskDispatcher().runAsync(this::writeProgress);
+    }
+
+    /**
+     * Records the position of every cursor: the oldest chunk still in flight, or else the next one to sweep.
+     * A world only counts as done once none of its chunks are in flight any more.
+     */
+    private void snapshotProgress() {
+        sweptSinceSave = 0;
+        for (Map.Entry<UUID, WorldCursor> entry : cursors.entrySet()) {
+            WorldCursor cursor = entry.getValue();
+            String path = entry.getKey().toString();
+            int regionIndex = cursor.regionIndex;
+            int slot = cursor.slot;
+            if (!cursor.inFlight.isEmpty()) {
+                long oldest = cursor.inFlight.first();
+                regionIndex = (int) (oldest >>> 32);
+                slot = (int) oldest;
+            }
+            progress.set(path + ".done", cursor.done && cursor.inFlight.isEmpty());
+            if (regionIndex < cursor.regionFiles.length) {
+                progress.set(path + ".region", cursor.regionFiles[regionIndex].getName());
+                progress.set(path + ".slot", slot);
+            }
+        }
+        unsavedProgress.set(progress.saveToString());
+    }
+
+    /**
+     * Writes the latest snapshot, if it was not written yet
+     */
+    private synchronized void writeProgress() {
+        String data = unsavedProgress.getAndSet(null);
+        if (data == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(progressFile.getParentFile().toPath());
+            Files.write(progressFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not save background sweep progress", e);
+        }
+    }
+}
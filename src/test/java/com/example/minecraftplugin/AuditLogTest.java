@@ -0,0 +1,110 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AuditLogTest.class.getName());
+
+    @TempDir
+    File folder;
+
+    private AuditLog newLog(int capacity, long maxFileBytes, int maxFiles) {
+        AuditLog log = new AuditLog(LOGGER, folder, capacity);
+        log.configure(true, false, maxFileBytes, maxFiles, "{location}", "{player}");
+        return log;
+    }
+
+    private List<String> lines(String name) throws IOException {
+        return Files.readAllLines(new File(folder, name).toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records events between a start and a stop, so they are written in one drain
+     */
+    private static void recordBatch(AuditLog log, int events, int firstX) {
+        log.start();
+        for (int i = 0; i < events; i++) {
+            log.record(AuditLog.Type.REMOVED_ELYTRA, "world_the_end", firstX + i, 64, 0, "chunk scan");
+        }
+    }
+
+    @Test
+    void fullBufferDropsAndCountsEvents() throws IOException {
+        AuditLog log = newLog(32, 1024L * 1024, 5);
+        recordBatch(log, 40, 0);
+        assertEquals(8, log.getDropped());
+        log.stop();
+
+        List<String> lines = lines("audit.csv");
+        assertEquals("time,type,world,x,y,z,detail", lines.get(0));
+        assertEquals(33, lines.size());
+        assertTrue(lines.get(1).endsWith(",REMOVED_ELYTRA,world_the_end,0,64,0,chunk scan"));
+        assertTrue(lines.get(32).endsWith(",31,64,0,chunk scan"));
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void ringWrapsAroundInOrder() throws IOException {
+        AuditLog log = newLog(32, 1024L * 1024, 5);
+        // Each batch fills the ring from where the last one stopped, wrapping around its end
+        for (int batch = 0; batch < 5; batch++) {
+            recordBatch(log, 20, batch * 20);
+            log.stop();
+        }
+        assertEquals(0, log.getDropped());
+
+        List<String> lines = lines("audit.csv");
+        assertEquals(101, lines.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(lines.get(i + 1).endsWith("," + i + ",64,0,chunk scan"), lines.get(i + 1));
+        }
+    }
+
+    @Test
+    void commasInDetailsDoNotBreakTheColumns() throws IOException {
+        AuditLog log = newLog(32, 1024L * 1024, 5);
+        log.start();
+        log.record(AuditLog.Type.PREVENTED_REPEATED, "world", 1, 2, 3, "Steve,Alex");
+        log.stop();
+        assertTrue(lines("audit.csv").get(1).endsWith(",PREVENTED_REPEATED,world,1,2,3,Steve Alex"));
+    }
+
+    @Test
+    void fullFilesAreRotatedAndTheOldestDropped() throws IOException {
+        // Each batch is larger than the 1 KiB limit, so every further batch starts a new file
+        AuditLog log = newLog(64, 1024L, 3);
+        for (int batch = 0; batch < 5; batch++) {
+            recordBatch(log, 30, batch * 100);
+            log.stop();
+        }
+
+        assertTrue(lines("audit.csv").get(1).contains(",400,64,0,"));
+        assertTrue(lines("audit.1.csv").get(1).contains(",300,64,0,"));
+        assertTrue(lines("audit.2.csv").get(1).contains(",200,64,0,"));
+        assertFalse(new File(folder, "audit.3.csv").exists());
+        assertEquals("time,type,world,x,y,z,detail", lines("audit.2.csv").get(0));
+    }
+
+    @Test
+    void nothingIsRecordedWhenDisabled() {
+        AuditLog log = new AuditLog(LOGGER, folder, 32);
+        log.configure(false, false, 1024L, 1, "{location}", "{player}");
+        recordBatch(log, 40, 0);
+        log.stop();
+        assertEquals(0, log.getDropped());
+        assertFalse(new File(folder, "audit.csv").exists());
+    }
+}
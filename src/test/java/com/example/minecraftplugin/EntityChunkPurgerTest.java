@@ -0,0 +1,148 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityChunkPurgerTest {
+
+    private static final Set<String> ELYTRA = Set.of("minecraft:elytra");
+
+    private static EntityChunkPurger purger(ElytraAction action) {
+        return new EntityChunkPurger(ELYTRA, 60, 100, action);
+    }
+
+    private static EntityChunkPurger.Result purge(EntityChunkPurger purger, byte[] chunk, boolean rewrite) {
+        return purger.purge(chunk, chunk.length, rewrite);
+    }
+
+    /**
+     * Walks the whole chunk and returns its LastUpdate, which follows the Entities list
+     */
+    private static long lastUpdate(byte[] chunk) {
+        NbtCursor cursor = new NbtCursor(chunk, chunk.length);
+        assertEquals(NbtCursor.TAG_COMPOUND, cursor.readByte());
+        cursor.skipString();
+        long lastUpdate = -1L;
+        int type;
+        while ((type = cursor.readByte()) != NbtCursor.TAG_END) {
+            if (cursor.readNameEquals("LastUpdate".getBytes(StandardCharsets.US_ASCII))) {
+                lastUpdate = cursor.readLong();
+            } else {
+                cursor.skipPayload(type);
+            }
+        }
+        assertEquals(chunk.length, cursor.position());
+        return lastUpdate;
+    }
+
+    private static boolean contains(byte[] data, String text) {
+        return new String(data, StandardCharsets.ISO_8859_1).contains(text);
+    }
+
+    private static byte[] mixedChunk() {
+        return TestNbt.chunk(
+            TestNbt.Entity.frame(0.5, 70.0, 0.5, "minecraft:elytra"),
+            TestNbt.Entity.frame(2.5, 70.0, 0.5, "minecraft:diamond"),
+            TestNbt.Entity.frame(4.5, 10.0, 0.5, "minecraft:elytra"),
+            TestNbt.Entity.frame(6.5, 70.0, 0.5, null),
+            new TestNbt.Entity("minecraft:glow_item_frame", 8.5, 99.9, 0.5, "minecraft:elytra", false),
+            new TestNbt.Entity("minecraft:armor_stand", 10.5, 70.0, 0.5, null, false));
+    }
+
+    @Test
+    void dryRunCountsFramesAndMatchesOnly() {
+        EntityChunkPurger.Result result = purge(purger(ElytraAction.REPLACE_WITH_APPLE), mixedChunk(), false);
+        assertEquals(5, result.frames);
+        assertEquals(2, result.matches);
+        assertTrue(result.changed);
+        assertNull(result.rewritten);
+    }
+
+    @Test
+    void replacedItemsBecomeApplesAndTheRestIsKept() {
+        byte[] chunk = mixedChunk();
+        byte[] rewritten = purge(purger(ElytraAction.REPLACE_WITH_APPLE), chunk, true).rewritten;
+
+        EntityChunkPurger.Result again = purge(purger(ElytraAction.REPLACE_WITH_APPLE), rewritten, false);
+        assertEquals(5, again.frames);
+        // Only the elytra below the Y range is left
+        assertEquals(0, again.matches);
+        EntityChunkPurger apples = new EntityChunkPurger(Set.of("minecraft:apple"), 60, 100, ElytraAction.REMOVE_ELYTRA);
+        assertEquals(2, purge(apples, rewritten, false).matches);
+        assertEquals(1, purge(new EntityChunkPurger(ELYTRA, -64, 320, ElytraAction.REMOVE_ELYTRA), rewritten, false).matches);
+        assertEquals(1234L, lastUpdate(rewritten));
+    }
+
+    @Test
+    void legacyItemsGetALegacyApple() {
+        byte[] chunk = TestNbt.chunk(new TestNbt.Entity("minecraft:item_frame", 0.5, 70.0, 0.5, "minecraft:elytra", true));
+        byte[] rewritten = purge(purger(ElytraAction.REPLACE_WITH_APPLE), chunk, true).rewritten;
+        assertTrue(contains(rewritten, "minecraft:apple"));
+        assertTrue(contains(rewritten, "Count"));
+        assertFalse(contains(rewritten, "count"));
+        assertEquals(1234L, lastUpdate(rewritten));
+    }
+
+    @Test
+    void removedItemsLeaveEmptyFrames() {
+        byte[] rewritten = purge(purger(ElytraAction.REMOVE_ELYTRA), mixedChunk(), true).rewritten;
+        EntityChunkPurger.Result again = purge(purger(ElytraAction.REMOVE_ELYTRA), rewritten, false);
+        assertEquals(5, again.frames);
+        assertEquals(0, again.matches);
+        assertEquals(1234L, lastUpdate(rewritten));
+    }
+
+    @Test
+    void framesInBoatsAreRemovedWholeOthersOnlyLoseTheItem() {
+        byte[] chunk = TestNbt.chunk(
+            TestNbt.Entity.boat(0.5, 70.0, 0.5),
+            TestNbt.Entity.frame(3.5, 72.0, 0.5, "minecraft:elytra"),
+            TestNbt.Entity.frame(12.5, 70.0, 0.5, "minecraft:elytra"),
+            new TestNbt.Entity("minecraft:bamboo_raft", 12.5, 90.0, 12.5, null, false));
+        EntityChunkPurger.Result result = purge(purger(ElytraAction.REMOVE_FRAME), chunk, true);
+        assertEquals(2, result.frames);
+        assertEquals(2, result.matches);
+
+        EntityChunkPurger.Result again = purge(purger(ElytraAction.REMOVE_FRAME), result.rewritten, false);
+        assertEquals(1, again.frames);
+        assertEquals(0, again.matches);
+        assertTrue(contains(result.rewritten, "minecraft:oak_boat"));
+        assertTrue(contains(result.rewritten, "minecraft:bamboo_raft"));
+        assertEquals(1234L, lastUpdate(result.rewritten));
+    }
+
+    @Test
+    void chunksWithoutMatchesAreLeftAlone() {
+        byte[] chunk = TestNbt.chunk(TestNbt.Entity.frame(0.5, 70.0, 0.5, "minecraft:diamond"), TestNbt.Entity.boat(1.0, 70.0, 1.0));
+        EntityChunkPurger.Result result = purge(purger(ElytraAction.REMOVE_FRAME), chunk, true);
+        assertEquals(1, result.frames);
+        assertFalse(result.changed);
+        assertNull(result.rewritten);
+    }
+
+    @Test
+    void corruptEntityCountsAreRejected() {
+        byte[] chunk = new TestNbt().beginCompound("")
+            .beginList("Entities", NbtCursor.TAG_COMPOUND, Integer.MAX_VALUE)
+            .end()
+            .end()
+            .toByteArray();
+        assertThrows(IllegalStateException.class, () -> purge(purger(ElytraAction.REMOVE_FRAME), chunk, true));
+    }
+
+    @Test
+    void chunksWithoutEntitiesAreSkipped() {
+        byte[] chunk = new TestNbt().beginCompound("").putInt("DataVersion", 4189).end().toByteArray();
+        EntityChunkPurger.Result result = purge(purger(ElytraAction.REMOVE_FRAME), chunk, true);
+        assertEquals(0, result.frames);
+        assertFalse(result.changed);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+/**
+ * Dispatcher for the tests: a single thread owns everything and runs every task right away,
+ * as on Paper, minus the delays. Repeating tasks are not supported.
+ */
+final class InlineTaskDispatcher implements TaskDispatcher {
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public TaskHandle runGlobalLater(Runnable task, long delayTicks) {
+        task.run();
+        return () -> { };
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        throw new UnsupportedOperationException("Repeating tasks are driven by the tests themselves");
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks) {
+        task.run();
+        return () -> { };
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        if (entity.isValid()) {
+            task.run();
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        throw new UnsupportedOperationException("Repeating tasks are driven by the tests themselves");
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a regionized server: chunks are split into 32x32 chunk regions, each region is
+ * owned by one of a fixed number of single-threaded lanes, and the global tasks run on a lane of
+ * their own. Ticks are 50 ms of wall-clock time. Lets the scan engine be exercised with real
+ * parallelism without a Folia server, by the tests and, through the test jar, by the benchmarks.
+ */
+final class LocalRegionDispatcher implements TaskDispatcher {
+
+    private static final long TICK_MILLIS = 50L;
+
+    // Lane the current thread belongs to, -1 for the global lane and threads outside the dispatcher
+    private static final ThreadLocal<Integer> CURRENT_LANE = ThreadLocal.withInitial(() -> -1);
+
+    private final ScheduledExecutorService global;
+    private final ScheduledExecutorService[] lanes;
+    private final ScheduledExecutorService async;
+
+    /**
+     * @param laneCount Number of region threads
+     */
+    LocalRegionDispatcher(int laneCount) {
+        this.global = Executors.newSingleThreadScheduledExecutor(runnable -> thread(runnable, "global", -1));
+        this.lanes = new ScheduledExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            int lane = i;
+            lanes[i] = Executors.newSingleThreadScheduledExecutor(runnable -> thread(runnable, "region-" + lane, lane));
+        }
+        this.async = Executors.newSingleThreadScheduledExecutor(runnable -> thread(runnable, "async", -1));
+    }
+
+    private static Thread thread(Runnable runnable, String name, int lane) {
+        Thread thread = new Thread(() -> {
+            CURRENT_LANE.set(lane);
+            runnable.run();
+        }, "LocalRegionDispatcher-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * @return the lane owning a chunk
+     */
+    int laneOf(int chunkX, int chunkZ) {
+        int hash = 31 * (chunkX >> 5) + (chunkZ >> 5);
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    /**
+     * @return the lane running the current thread, -1 on the global lane and outside the dispatcher
+     */
+    static int currentLane() {
+        return CURRENT_LANE.get();
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public TaskHandle runGlobalLater(Runnable task, long delayTicks) {
+        return handle(global.schedule(task, delayTicks * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public TaskHandle runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        return handle(global.scheduleAtFixedRate(task, delayTicks * TICK_MILLIS, periodTicks * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        int lane = laneOf(chunkX, chunkZ);
+        if (CURRENT_LANE.get() == lane) {
+            task.run();
+        } else {
+            lanes[lane].execute(task);
+        }
+    }
+
+    @Override
+    public TaskHandle runAtChunkLater(World world, int chunkX, int chunkZ, Runnable task, long delayTicks) {
+        return handle(lanes[laneOf(chunkX, chunkZ)].schedule(task, delayTicks * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void runAtEntityLater(Entity entity, Runnable task, long delayTicks) {
+        int chunkX = entity.getLocation().getBlockX() >> 4;
+        int chunkZ = entity.getLocation().getBlockZ() >> 4;
+        lanes[laneOf(chunkX, chunkZ)].schedule(() -> {
+            if (entity.isValid()) {
+                task.run();
+            }
+        }, delayTicks * TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        async.execute(task);
+    }
+
+    @Override
+    public TaskHandle runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return handle(async.scheduleAtFixedRate(task, delayTicks * TICK_MILLIS, periodTicks * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return CURRENT_LANE.get() == laneOf(entity.getLocation().getBlockX() >> 4, entity.getLocation().getBlockZ() >> 4);
+    }
+
+    /**
+     * Runs a task on the global lane and waits for it
+     */
+    void runGlobalAndWait(Runnable task) throws Exception {
+        global.submit(task).get();
+    }
+
+    void shutdown() {
+        global.shutdownNow();
+        for (ScheduledExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+        async.shutdownNow();
+    }
+
+    private static TaskHandle handle(ScheduledFuture<?> future) {
+        return () -> future.cancel(false);
+    }
+}
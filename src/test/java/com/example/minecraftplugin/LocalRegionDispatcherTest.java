@@ -0,0 +1,119 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRegionDispatcherTest {
+
+    // 3x2 regions of 32x32 chunks
+    private static final int CHUNKS_X = 96;
+    private static final int CHUNKS_Z = 64;
+    private static final int LANES = 4;
+
+    private static ServerMock server;
+    private static World world;
+
+    private final LocalRegionDispatcher dispatcher = new LocalRegionDispatcher(LANES);
+
+    @BeforeAll
+    static void startServer() {
+        server = MockBukkit.mock();
+        world = server.createWorld(new WorldCreator("world_the_end").environment(World.Environment.THE_END));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    @AfterEach
+    void stopLanes() {
+        dispatcher.shutdown();
+    }
+
+    private static long[] chunkKeys() {
+        long[] keys = new long[CHUNKS_X * CHUNKS_Z];
+        int i = 0;
+        for (int x = 0; x < CHUNKS_X; x++) {
+            for (int z = 0; z < CHUNKS_Z; z++) {
+                keys[i++] = (long) z << 32 | x;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    void scanPassVisitsEachChunkOnItsOwningLane() throws Exception {
+        ScanScheduler scheduler = new ScanScheduler(new ScanMetrics(), dispatcher, candidate -> candidate.equals(world), Long.MAX_VALUE, 1_000_000);
+        Map<Long, Integer> visitLanes = new ConcurrentHashMap<>();
+        AtomicInteger visits = new AtomicInteger();
+        CountDownLatch complete = new CountDownLatch(1);
+        scheduler.submit("test", candidate -> chunkKeys(), (candidate, chunkKey) -> {
+            visitLanes.put(chunkKey, LocalRegionDispatcher.currentLane());
+            visits.incrementAndGet();
+        }, complete::countDown);
+
+        // Tick the scheduler on the global lane until the pass completed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (complete.getCount() > 0 && System.nanoTime() < deadline) {
+            dispatcher.runGlobalAndWait(scheduler);
+        }
+        assertEquals(0, complete.getCount());
+
+        // Every chunk visited exactly once
+        assertEquals(CHUNKS_X * CHUNKS_Z, visits.get());
+        assertEquals(CHUNKS_X * CHUNKS_Z, visitLanes.size());
+        Set<Integer> usedLanes = new HashSet<>();
+        for (Map.Entry<Long, Integer> visit : visitLanes.entrySet()) {
+            long chunkKey = visit.getKey();
+            assertEquals(dispatcher.laneOf((int) chunkKey, (int) (chunkKey >> 32)), visit.getValue(), "lane of " + chunkKey);
+            usedLanes.add(visit.getValue());
+        }
+        assertTrue(usedLanes.size() > 1);
+    }
+
+    @Test
+    void chunkTasksRunInlineOnlyOnTheOwningLane() throws Exception {
+        int owner = dispatcher.laneOf(0, 0);
+        int other = dispatcher.laneOf(32, 0);
+        assertTrue(owner != other);
+
+        Map<String, Integer> lanes = new ConcurrentHashMap<>();
+        AtomicBoolean ranInline = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(2);
+        dispatcher.runAtChunk(world, 0, 0, () -> {
+            // Same region: runs right away on this lane
+            dispatcher.runAtChunk(world, 31, 31, () -> lanes.put("same", LocalRegionDispatcher.currentLane()));
+            ranInline.set(lanes.containsKey("same"));
+            // Another region: handed to its own lane
+            dispatcher.runAtChunk(world, 32, 0, () -> {
+                lanes.put("other", LocalRegionDispatcher.currentLane());
+                done.countDown();
+            });
+            done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertTrue(ranInline.get());
+        assertEquals(owner, lanes.get("same"));
+        assertEquals(other, lanes.get("other"));
+    }
+}
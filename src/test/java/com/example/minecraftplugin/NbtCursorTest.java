@@ -0,0 +1,136 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NbtCursorTest {
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A compound holding one tag of every type, followed by a marker int
+     */
+    private static byte[] everyTagType() {
+        return new TestNbt().beginCompound("root")
+            .putByte("byte", -3)
+            .putShort("short", 300)
+            .putInt("int", -70000)
+            .putLong("long", 1L << 40)
+            .putFloat("float", 1.5f)
+            .putPos(1.0, 2.0, 3.0)
+            .putByteArray("bytes", new byte[] {1, 2, 3})
+            .putString("string", "minecraft:elytra")
+            .beginList("empty", NbtCursor.TAG_END, 0)
+            .beginList("strings", NbtCursor.TAG_STRING, 2).element("a").element("bc")
+            .putIntArray("ints", 1, 2, 3)
+            .putLongArray("longs", 4L, 5L)
+            .end()
+            .putInt("marker", 42)
+            .toByteArray();
+    }
+
+    @Test
+    void skipsEveryTagTypeByItsLength() {
+        byte[] data = everyTagType();
+        NbtCursor cursor = new NbtCursor(data, data.length);
+        assertEquals(NbtCursor.TAG_COMPOUND, cursor.readByte());
+        assertTrue(cursor.readNameEquals(ascii("root")));
+
+        int type;
+        int tags = 0;
+        while ((type = cursor.readByte()) != NbtCursor.TAG_END) {
+            cursor.skipString();
+            cursor.skipPayload(type);
+            tags++;
+        }
+        assertEquals(12, tags);
+        assertEquals(NbtCursor.TAG_INT, cursor.readByte());
+        assertTrue(cursor.readNameEquals(ascii("marker")));
+        assertEquals(42, cursor.readInt());
+        assertEquals(data.length, cursor.position());
+    }
+
+    @Test
+    void skipCompoundLandsRightAfterItsEnd() {
+        byte[] data = new TestNbt().beginCompound("outer")
+            .beginCompound("inner")
+            .putString("id", "minecraft:item_frame")
+            .putPos(0.5, 64.0, -0.5)
+            .end()
+            .putInt("after", 7)
+            .end()
+            .toByteArray();
+        NbtCursor cursor = new NbtCursor(data, data.length);
+        cursor.readByte();
+        cursor.skipString();
+        assertEquals(NbtCursor.TAG_COMPOUND, cursor.readByte());
+        cursor.skipString();
+        cursor.skipCompound();
+        assertEquals(NbtCursor.TAG_INT, cursor.readByte());
+        assertEquals("after", cursor.readString());
+        assertEquals(7, cursor.readInt());
+    }
+
+    @Test
+    void readsValues() {
+        byte[] data = new TestNbt().putPos(-1.25, 70.0, 1e9).putLong("long", -2L).putString("id", "minecraft:oak_boat").toByteArray();
+        NbtCursor cursor = new NbtCursor(data, data.length);
+        assertEquals(NbtCursor.TAG_LIST, cursor.readByte());
+        int nameStart = cursor.position();
+        cursor.skipString();
+        assertTrue(cursor.nameEquals(nameStart, ascii("Pos")));
+        assertFalse(cursor.nameEquals(nameStart, ascii("Po")));
+        assertFalse(cursor.nameEquals(nameStart, ascii("Pot")));
+        assertEquals(NbtCursor.TAG_DOUBLE, cursor.readByte());
+        assertEquals(3, cursor.readLength());
+        assertEquals(-1.25, cursor.readDouble());
+        assertEquals(70.0, cursor.readDouble());
+        assertEquals(1e9, cursor.readDouble());
+
+        assertEquals(NbtCursor.TAG_LONG, cursor.readByte());
+        assertFalse(cursor.readNameEquals(ascii("lon")));
+        assertEquals(-2L, cursor.readLong());
+        assertEquals(NbtCursor.TAG_STRING, cursor.readByte());
+        cursor.skipString();
+        assertEquals("minecraft:oak_boat", cursor.readString());
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] data = new TestNbt().beginCompound("root").putLongArray("longs", 1L, 2L, 3L).end().toByteArray();
+        NbtCursor cursor = new NbtCursor(data, data.length - 10);
+        cursor.readByte();
+        cursor.skipString();
+        assertThrows(IllegalStateException.class, cursor::skipCompound);
+    }
+
+    @Test
+    void negativeLengthsAreRejected() {
+        byte[] data = new TestNbt().putIntArray("ints").toByteArray();
+        // Overwrite the length with -1
+        for (int i = data.length - 4; i < data.length; i++) {
+            data[i] = (byte) 0xFF;
+        }
+        NbtCursor cursor = new NbtCursor(data, data.length);
+        int type = cursor.readByte();
+        cursor.skipString();
+        assertThrows(IllegalStateException.class, () -> cursor.skipPayload(type));
+    }
+
+    @Test
+    void unknownTagTypesAreRejected() {
+        byte[] data = {13, 0, 1, 'x'};
+        NbtCursor cursor = new NbtCursor(data, data.length);
+        int type = cursor.readByte();
+        cursor.skipString();
+        assertThrows(IllegalStateException.class, () -> cursor.skipPayload(type));
+    }
+}
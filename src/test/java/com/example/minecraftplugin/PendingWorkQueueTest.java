@@ -0,0 +1,53 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingWorkQueueTest {
+
+    // Largest chunk coordinate magnitude that fits the packed keys
+    private static final int MAX_COORDINATE = (1 << 21) - 1;
+
+    private static void assertRoundTrip(int worldIndex, int chunkX, int chunkZ) {
+        long key = PendingWorkQueue.packChunkKey(worldIndex, chunkX, chunkZ);
+        assertEquals(worldIndex, PendingWorkQueue.worldIndex(key), "world of " + chunkX + ", " + chunkZ);
+        assertEquals(chunkX, PendingWorkQueue.chunkX(key), "x of " + chunkX + ", " + chunkZ);
+        assertEquals(chunkZ, PendingWorkQueue.chunkZ(key), "z of " + chunkX + ", " + chunkZ);
+    }
+
+    @Test
+    void keysDecodeToTheirCoordinates() {
+        int[] coordinates = {0, 1, -1, 2, -2, 15, -16, 1875, -1875, MAX_COORDINATE, -MAX_COORDINATE - 1};
+        for (int worldIndex : new int[] {0, 1, 7, 1000}) {
+            for (int chunkX : coordinates) {
+                for (int chunkZ : coordinates) {
+                    assertRoundTrip(worldIndex, chunkX, chunkZ);
+                }
+            }
+        }
+    }
+
+    @Test
+    void negativeCoordinatesDoNotLeakIntoOtherFields() {
+        long key = PendingWorkQueue.packChunkKey(3, -1, -1);
+        assertEquals(3, PendingWorkQueue.worldIndex(key));
+        assertTrue(key > 0);
+    }
+
+    @Test
+    void neighbouringChunksAndWorldsGetDistinctKeys() {
+        Set<Long> keys = new HashSet<>();
+        for (int worldIndex = 0; worldIndex < 3; worldIndex++) {
+            for (int chunkX = -8; chunkX <= 8; chunkX++) {
+                for (int chunkZ = -8; chunkZ <= 8; chunkZ++) {
+                    assertTrue(keys.add(PendingWorkQueue.packChunkKey(worldIndex, chunkX, chunkZ)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionFilePurgerTest {
+
+    private static final EntityChunkPurger PURGER = new EntityChunkPurger(Set.of("minecraft:elytra"), 60, 100, ElytraAction.REPLACE_WITH_APPLE);
+
+    @TempDir
+    Path folder;
+
+    /**
+     * A region with two chunks to clean, one chunk in a compression the JDK can't read and one slot
+     * pointing past the end of the file
+     */
+    private Path regionFile() throws IOException {
+        byte[][] chunks = new byte[1024][];
+        chunks[0] = TestNbt.chunk(
+            TestNbt.Entity.frame(0.5, 70.0, 0.5, "minecraft:elytra"),
+            TestNbt.Entity.frame(1.5, 70.0, 0.5, "minecraft:diamond"));
+        chunks[1] = TestNbt.chunk(TestNbt.Entity.frame(16.5, 70.0, 0.5, "minecraft:elytra"));
+        chunks[33] = TestNbt.chunk(
+            TestNbt.Entity.boat(16.5, 80.0, 16.5),
+            TestNbt.Entity.frame(17.5, 80.0, 16.5, "minecraft:elytra"));
+        ByteBuffer region = ByteBuffer.wrap(TestNbt.regionFile(chunks));
+
+        // Mark chunk 1 as LZ4-compressed
+        int offset = (region.getInt(4) >>> 8) * 4096;
+        region.put(offset + 4, (byte) 4);
+        // Point slot 5 far beyond the end of the file
+        region.putInt(5 * 4, 1000 << 8 | 1);
+
+        Path file = folder.resolve("r.0.0.mca");
+        Files.write(file, region.array());
+        return file;
+    }
+
+    @Test
+    void dryRunCountsWithoutWriting() throws IOException {
+        Path file = regionFile();
+        byte[] before = Files.readAllBytes(file);
+
+        RegionFilePurger.Stats stats = new RegionFilePurger(PURGER, true).purge(file);
+        assertEquals(3, stats.chunks);
+        assertEquals(3, stats.frames);
+        assertEquals(2, stats.matches);
+        assertEquals(2, stats.rewritten);
+        assertEquals(2, stats.skipped);
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    void changedChunksAreAppendedAndRelinked() throws IOException {
+        Path file = regionFile();
+        long sizeBefore = Files.size(file);
+
+        RegionFilePurger.Stats stats = new RegionFilePurger(PURGER, false).purge(file);
+        assertEquals(2, stats.rewritten);
+        assertEquals(2, stats.skipped);
+        assertTrue(Files.size(file) > sizeBefore);
+        assertEquals(0, Files.size(file) % 4096);
+
+        ByteBuffer region = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertTrue((long) (region.getInt(0) >>> 8) * 4096 >= sizeBefore);
+        assertTrue((long) (region.getInt(33 * 4) >>> 8) * 4096 >= sizeBefore);
+        assertTrue(region.getInt(4096) != 0);
+
+        // A second pass finds the same frames, with nothing left to change
+        RegionFilePurger.Stats again = new RegionFilePurger(PURGER, true).purge(file);
+        assertEquals(3, again.chunks);
+        assertEquals(3, again.frames);
+        assertEquals(0, again.matches);
+        assertEquals(0, again.rewritten);
+        assertEquals(2, again.skipped);
+    }
+
+    @Test
+    void filesWithoutAHeaderAreIgnored() throws IOException {
+        Path file = folder.resolve("r.1.0.mca");
+        Files.write(file, new byte[100]);
+        RegionFilePurger.Stats stats = new RegionFilePurger(PURGER, false).purge(file);
+        assertEquals(0, stats.chunks);
+        assertEquals(0, stats.skipped);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldCreator;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemovalPipelineTest {
+
+    private static ServerMock server;
+    private static World end;
+    private static RuleSet rules;
+
+    private ScanMetrics metrics;
+    private RemovalPipeline pipeline;
+    private final List<String> removed = new ArrayList<>();
+
+    @BeforeAll
+    static void startServer() {
+        server = MockBukkit.mock();
+        end = server.createWorld(new WorldCreator("world_the_end").environment(Environment.THE_END));
+        // No rules configured: every elytra in the End is replaced with an apple
+        rules = RuleSet.compile(new YamlConfiguration(), Logger.getLogger(RemovalPipelineTest.class.getName()));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    @BeforeEach
+    void createPipeline() {
+        metrics = new ScanMetrics();
+        removed.clear();
+        pipeline = new RemovalPipeline(metrics, new InlineTaskDispatcher(), frame -> rules.match(frame, null),
+            (frame, action, source) -> removed.add(frame.getEntityId() + " " + action + " " + source));
+    }
+
+    private static ItemFrame frame(int x, Material item) {
+        ItemFrame frame = end.spawn(new Location(end, x, 70, 0), ItemFrame.class);
+        frame.setItem(new ItemStack(item));
+        return frame;
+    }
+
+    private long duplicates() {
+        return metrics.getCount(ScanMetrics.Counter.REMOVALS_DEDUPLICATED);
+    }
+
+    @Test
+    void framesFoundBySeveralPathsAreActedOnOnce() {
+        ItemFrame frame = frame(0, Material.ELYTRA);
+        assertFalse(pipeline.isHandled(frame));
+        assertTrue(pipeline.submit(frame, "chunk-scan"));
+        assertFalse(pipeline.submit(frame, "boat-scan"));
+        assertFalse(pipeline.submit(frame, "boat-scan"));
+        assertTrue(pipeline.isHandled(frame));
+        assertEquals(3, duplicates());
+
+        pipeline.run();
+        assertEquals(List.of(frame.getEntityId() + " REPLACE_WITH_APPLE chunk-scan"), removed);
+    }
+
+    @Test
+    void framesStayHandledUntilTheBatchAfterTheirs() {
+        ItemFrame frame = frame(0, Material.ELYTRA);
+        pipeline.submit(frame, "chunk-scan");
+        pipeline.run();
+        assertEquals(1, removed.size());
+
+        // A path still holding the frame during the next tick does not queue it again
+        assertTrue(pipeline.isHandled(frame));
+        assertFalse(pipeline.submit(frame, "full-scan"));
+        assertEquals(2, duplicates());
+
+        // The next batch ends the cycle
+        pipeline.run();
+        assertFalse(pipeline.isHandled(frame));
+        assertTrue(pipeline.submit(frame, "full-scan"));
+        assertEquals(2, duplicates());
+    }
+
+    @Test
+    void everyQueuedRemovalIsAppliedInOneBatchPerTick() {
+        List<ItemFrame> frames = List.of(frame(0, Material.ELYTRA), frame(2, Material.ELYTRA), frame(4, Material.ELYTRA));
+        for (ItemFrame frame : frames) {
+            assertTrue(pipeline.submit(frame, "chunk-scan"));
+        }
+        assertEquals(0, pipeline.getBatches());
+        assertTrue(removed.isEmpty());
+
+        pipeline.run();
+        assertEquals(1, pipeline.getBatches());
+        assertEquals(3, removed.size());
+
+        pipeline.run();
+        assertEquals(2, pipeline.getBatches());
+        assertEquals(3, removed.size());
+    }
+
+    @Test
+    void framesChangedWhileQueuedAreMatchedAgain() {
+        ItemFrame swapped = frame(0, Material.ELYTRA);
+        ItemFrame broken = frame(2, Material.ELYTRA);
+        pipeline.submit(swapped, "chunk-scan");
+        pipeline.submit(broken, "chunk-scan");
+        swapped.setItem(new ItemStack(Material.DIAMOND));
+        broken.remove();
+
+        pipeline.run();
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    void flushAppliesTheQueueAndStartsANewCycle() {
+        ItemFrame frame = frame(0, Material.ELYTRA);
+        pipeline.submit(frame, "spawn");
+        pipeline.flush();
+        assertEquals(1, removed.size());
+        assertEquals(0, pipeline.getBatches());
+        assertTrue(pipeline.submit(frame, "spawn"));
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldCreator;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleSetTest {
+
+    private static final Logger LOGGER = Logger.getLogger(RuleSetTest.class.getName());
+
+    private static ServerMock server;
+    private static World end;
+    private static World overworld;
+
+    @BeforeAll
+    static void startServer() {
+        server = MockBukkit.mock();
+        end = server.createWorld(new WorldCreator("world_the_end").environment(Environment.THE_END));
+        overworld = server.createWorld(new WorldCreator("world").environment(Environment.NORMAL));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    private static RuleSet compile(String yaml) {
+        return compile(yaml, LOGGER);
+    }
+
+    private static RuleSet compile(String yaml, Logger logger) {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(yaml);
+        } catch (InvalidConfigurationException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return RuleSet.compile(config, logger);
+    }
+
+    private static String name(RuleSet.Rule rule) {
+        return rule == null ? null : rule.getName();
+    }
+
+    @Test
+    void withoutRulesElytrasAreRemovedAnywhereInTheEnd() {
+        RuleSet rules = compile("");
+        RuleSet.Rule rule = rules.match(end, Material.ELYTRA, 0, 70, 0);
+        assertEquals("end-ship", name(rule));
+        assertEquals(ElytraAction.REPLACE_WITH_APPLE, rule.getAction());
+        assertNull(rules.match(end, Material.DIAMOND, 0, 70, 0));
+        assertNull(rules.match(overworld, Material.ELYTRA, 0, 70, 0));
+        assertTrue(rules.appliesTo(end));
+        assertFalse(rules.appliesTo(overworld));
+        assertFalse(rules.hasShipsOnlyRules());
+    }
+
+    @Test
+    void endShipSettingsLimitTheRuleToShipsInTheYRange() {
+        RuleSet rules = compile(
+            "end-ship:\n" +
+            "  remove-all-end-elytras: false\n" +
+            "  min-y: 60\n" +
+            "  max-y: 100\n" +
+            "  action: REMOVE_FRAME\n");
+        assertTrue(rules.hasShipsOnlyRules());
+        assertTrue(rules.isShipsOnly(end));
+        assertEquals(60, rules.getShipMinY());
+        assertEquals(100, rules.getShipMaxY());
+
+        assertNull(rules.match(end, Material.ELYTRA, 0, 59, 0, (world, x, z) -> true));
+        assertNull(rules.match(end, Material.ELYTRA, 0, 101, 0, (world, x, z) -> true));
+        assertNull(rules.match(end, Material.ELYTRA, 0, 70, 0, (world, x, z) -> false));
+        RuleSet.Rule rule = rules.match(end, Material.ELYTRA, 0, 70, 0, (world, x, z) -> true);
+        assertEquals(ElytraAction.REMOVE_FRAME, rule.getAction());
+        // Without a ship check, e.g. for placements, the ships-only rule applies as is
+        assertEquals("end-ship", name(rules.match(end, Material.ELYTRA, 0, 70, 0)));
+    }
+
+    @Test
+    void firstMatchingRuleWins() {
+        RuleSet rules = compile(
+            "rules:\n" +
+            "  high:\n" +
+            "    materials: [elytra]\n" +
+            "    min-y: 100\n" +
+            "    action: REMOVE_FRAME\n" +
+            "  any:\n" +
+            "    materials: [elytra, diamond]\n" +
+            "    action: REMOVE_ELYTRA\n");
+        assertEquals("high", name(rules.match(overworld, Material.ELYTRA, 0, 150, 0)));
+        assertEquals("any", name(rules.match(overworld, Material.ELYTRA, 0, 50, 0)));
+        assertEquals("any", name(rules.match(overworld, Material.DIAMOND, 0, 150, 0)));
+        assertTrue(rules.isTargetMaterial(Material.DIAMOND));
+        assertFalse(rules.isTargetMaterial(Material.APPLE));
+    }
+
+    @Test
+    void shipsOnlyRuleFallsThroughOutsideShips() {
+        RuleSet rules = compile(
+            "rules:\n" +
+            "  ships:\n" +
+            "    ships-only: true\n" +
+            "    action: REMOVE_FRAME\n" +
+            "  islands:\n" +
+            "    environments: [the_end]\n" +
+            "    action: REMOVE_ELYTRA\n");
+        assertFalse(rules.isShipsOnly(end));
+        assertEquals("ships", name(rules.match(end, Material.ELYTRA, 0, 70, 0, (world, x, z) -> true)));
+        assertEquals("islands", name(rules.match(end, Material.ELYTRA, 0, 70, 0, (world, x, z) -> false)));
+        assertNull(rules.match(overworld, Material.ELYTRA, 0, 70, 0, (world, x, z) -> false));
+    }
+
+    @Test
+    void shipCheckIsAskedAtMostOnceAndOnlyForShipsOnlyRules() {
+        RuleSet rules = compile(
+            "rules:\n" +
+            "  ships-a:\n" +
+            "    ships-only: true\n" +
+            "  ships-b:\n" +
+            "    ships-only: true\n" +
+            "  diamonds:\n" +
+            "    materials: [diamond]\n");
+        int[] asked = new int[1];
+        RuleSet.ShipCheck counting = (world, x, z) -> {
+            asked[0]++;
+            return false;
+        };
+        assertNull(rules.match(end, Material.ELYTRA, 0, 70, 0, counting));
+        assertEquals(1, asked[0]);
+        assertEquals("diamonds", name(rules.match(end, Material.DIAMOND, 0, 70, 0, counting)));
+        assertNull(rules.match(end, Material.APPLE, 0, 70, 0, counting));
+        assertEquals(1, asked[0]);
+    }
+
+    @Test
+    void worldsAndEnvironmentsNarrowTheRule() {
+        RuleSet rules = compile(
+            "rules:\n" +
+            "  named:\n" +
+            "    worlds: [World]\n" +
+            "  nether:\n" +
+            "    environments: [nether]\n");
+        assertEquals("named", name(rules.match(overworld, Material.ELYTRA, 0, 70, 0)));
+        assertNull(rules.match(end, Material.ELYTRA, 0, 70, 0));
+        assertTrue(rules.appliesTo("some_nether", Environment.NETHER));
+        assertFalse(rules.appliesTo("some_end", Environment.THE_END));
+    }
+
+    @Test
+    void exemptAreasKeepTheirItems() {
+        RuleSet rules = compile(
+            "exemptions:\n" +
+            "  spawn:\n" +
+            "    world: world_the_end\n" +
+            "    min: [10, 0, 10]\n" +
+            "    max: [-10, 255, -10]\n" +
+            "  broken:\n" +
+            "    min: [0, 0]\n" +
+            "    max: [1, 1, 1]\n");
+        assertNull(rules.match(end, Material.ELYTRA, 0, 70, 0));
+        assertNull(rules.match(end, Material.ELYTRA, -10, 0, 10));
+        assertEquals("end-ship", name(rules.match(end, Material.ELYTRA, 11, 70, 0)));
+        assertEquals("- Exempt areas: 1", rules.describe().get(rules.describe().size() - 1));
+    }
+
+    @Test
+    void invalidEntriesAreReportedAndSkipped() {
+        List<String> warnings = new ArrayList<>();
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        RuleSet rules = compile(
+            "rules:\n" +
+            "  mixed:\n" +
+            "    materials: [elytra, not_an_item]\n" +
+            "    environments: [the_end, moon]\n" +
+            "    action: vaporize\n", logger);
+        assertEquals(3, warnings.size());
+        RuleSet.Rule rule = rules.match(end, Material.ELYTRA, 0, 70, 0);
+        assertEquals("mixed", name(rule));
+        assertEquals(ElytraAction.REPLACE_WITH_APPLE, rule.getAction());
+    }
+
+    @Test
+    void fingerprintFollowsTheRulesOnly() {
+        String base =
+            "rules:\n" +
+            "  ships:\n" +
+            "    worlds: [a, b]\n" +
+            "    min-y: 60\n";
+        assertEquals(compile(base).getFingerprint(), compile(base).getFingerprint());
+        assertEquals(compile(base).getFingerprint(), compile(base.replace("[a, b]", "[B, a]")).getFingerprint());
+        assertEquals(compile(base).getFingerprint(), compile(base + "debug: true\n").getFingerprint());
+        assertNotEquals(compile(base).getFingerprint(), compile(base.replace("60", "61")).getFingerprint());
+        assertNotEquals(compile(base).getFingerprint(), compile(base +
+            "exemptions:\n" +
+            "  spawn:\n" +
+            "    min: [0, 0, 0]\n" +
+            "    max: [1, 1, 1]\n").getFingerprint());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScanMetricsTest {
+
+    private static long onlySample(long nanos) {
+        ScanMetrics.LatencyHistogram histogram = new ScanMetrics.LatencyHistogram();
+        histogram.record(nanos);
+        return histogram.quantileNanos(1.0);
+    }
+
+    @Test
+    void bucketBoundsDoubleFromOneMicrosecond() {
+        assertEquals(1024L, ScanMetrics.LatencyHistogram.upperBoundNanos(0));
+        assertEquals(2048L, ScanMetrics.LatencyHistogram.upperBoundNanos(1));
+        assertEquals(1024L << 20, ScanMetrics.LatencyHistogram.upperBoundNanos(20));
+    }
+
+    @Test
+    void samplesLandInTheSmallestBucketHoldingThem() {
+        assertEquals(1024L, onlySample(0L));
+        assertEquals(1024L, onlySample(1024L));
+        assertEquals(2048L, onlySample(1025L));
+        assertEquals(2048L, onlySample(2048L));
+        assertEquals(4096L, onlySample(2049L));
+        assertEquals(1024L << 10, onlySample(1_000_000L));
+        assertEquals(1024L << 20, onlySample(1024L << 20));
+    }
+
+    @Test
+    void samplesAboveTheLastBoundShareTheOverflowBucket() {
+        assertEquals(1024L << 21, onlySample((1024L << 20) + 1));
+        assertEquals(1024L << 21, onlySample(Long.MAX_VALUE));
+    }
+
+    @Test
+    void quantilesPickTheBucketOfTheirRank() {
+        ScanMetrics.LatencyHistogram histogram = new ScanMetrics.LatencyHistogram();
+        assertEquals(0L, histogram.quantileNanos(0.99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000L);
+        }
+        histogram.record(50_000L);
+        assertEquals(1024L, histogram.quantileNanos(0.5));
+        assertEquals(1024L, histogram.quantileNanos(0.99));
+        assertEquals(65536L, histogram.quantileNanos(1.0));
+    }
+}
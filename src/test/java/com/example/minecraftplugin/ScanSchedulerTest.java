@@ -0,0 +1,115 @@
+package com.example.minecraftplugin;
+
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanSchedulerTest {
+
+    private static final int CHUNKS_PER_WORLD = 1001;
+    private static final int MAX_PASS_TICKS = 20;
+
+    private static ServerMock server;
+    private static World overworld;
+    private static World end;
+
+    @BeforeAll
+    static void startServer() {
+        server = MockBukkit.mock();
+        overworld = server.createWorld(new WorldCreator("world"));
+        end = server.createWorld(new WorldCreator("world_the_end").environment(World.Environment.THE_END));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        MockBukkit.unmock();
+    }
+
+    private static boolean isTestWorld(World world) {
+        return world.getUID().equals(overworld.getUID()) || world.getUID().equals(end.getUID());
+    }
+
+    private static long[] chunkKeys(World world) {
+        long[] keys = new long[CHUNKS_PER_WORLD];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) i << 32 | i;
+        }
+        return keys;
+    }
+
+    /**
+     * Collects the chunks visited, by world, failing on a chunk visited twice
+     */
+    private static final class Visits implements ScanScheduler.ChunkVisitor {
+        final Set<String> chunks = new HashSet<>();
+
+        @Override
+        public void visit(World world, long chunkKey) {
+            assertTrue(chunks.add(world.getUID() + "/" + chunkKey), "visited twice: " + chunkKey);
+        }
+    }
+
+    private static void assertPassBound(long tickBudgetNanos) {
+        ScanScheduler scheduler = new ScanScheduler(new ScanMetrics(), new InlineTaskDispatcher(), ScanSchedulerTest::isTestWorld, tickBudgetNanos, MAX_PASS_TICKS);
+        Visits visits = new Visits();
+        AtomicBoolean completed = new AtomicBoolean();
+        assertTrue(scheduler.submit("test", ScanSchedulerTest::chunkKeys, visits, () -> completed.set(true)));
+
+        for (int tick = 0; tick < MAX_PASS_TICKS; tick++) {
+            scheduler.run();
+        }
+        assertEquals(2 * CHUNKS_PER_WORLD, visits.chunks.size());
+        assertTrue(completed.get());
+        assertEquals(0, scheduler.getPendingPasses());
+    }
+
+    @Test
+    void zeroBudgetStillVisitsEveryChunkWithinThePassBound() {
+        assertPassBound(0L);
+    }
+
+    @Test
+    void tinyBudgetStillVisitsEveryChunkWithinThePassBound() {
+        assertPassBound(1L);
+    }
+
+    @Test
+    void zeroBudgetSpreadsThePassEvenly() {
+        ScanScheduler scheduler = new ScanScheduler(new ScanMetrics(), new InlineTaskDispatcher(), ScanSchedulerTest::isTestWorld, 0L, MAX_PASS_TICKS);
+        Visits visits = new Visits();
+        scheduler.submit("test", ScanSchedulerTest::chunkKeys, visits, null);
+
+        int floor = (2 * CHUNKS_PER_WORLD + MAX_PASS_TICKS - 1) / MAX_PASS_TICKS;
+        for (int tick = 1; tick < MAX_PASS_TICKS; tick++) {
+            scheduler.run();
+            assertEquals(tick * floor, visits.chunks.size());
+        }
+        assertTrue(scheduler.isQueued("test"));
+    }
+
+    @Test
+    void filteredWorldsAreNotVisited() {
+        ScanScheduler scheduler = new ScanScheduler(new ScanMetrics(), new InlineTaskDispatcher(),
+            world -> world.getUID().equals(overworld.getUID()), 0L, MAX_PASS_TICKS);
+        Visits visits = new Visits();
+        scheduler.submit("test", ScanSchedulerTest::chunkKeys, visits, null);
+
+        for (int tick = 0; tick < MAX_PASS_TICKS; tick++) {
+            scheduler.run();
+        }
+        assertEquals(CHUNKS_PER_WORLD, visits.chunks.size());
+        assertFalse(visits.chunks.stream().anyMatch(chunk -> chunk.startsWith(end.getUID().toString())));
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.minecraftplugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+
+/**
+ * Builds uncompressed NBT and entities region files the way the game writes them, for the tests
+ */
+final class TestNbt {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    TestNbt beginCompound(String name) {
+        return tag(NbtCursor.TAG_COMPOUND, name);
+    }
+
+    TestNbt end() {
+        return write(() -> out.writeByte(NbtCursor.TAG_END));
+    }
+
+    TestNbt beginList(String name, int elementType, int count) {
+        tag(NbtCursor.TAG_LIST, name);
+        return write(() -> {
+            out.writeByte(elementType);
+            out.writeInt(count);
+        });
+    }
+
+    TestNbt putByte(String name, int value) {
+        tag(NbtCursor.TAG_BYTE, name);
+        return write(() -> out.writeByte(value));
+    }
+
+    TestNbt putShort(String name, int value) {
+        tag(NbtCursor.TAG_SHORT, name);
+        return write(() -> out.writeShort(value));
+    }
+
+    TestNbt putInt(String name, int value) {
+        tag(NbtCursor.TAG_INT, name);
+        return write(() -> out.writeInt(value));
+    }
+
+    TestNbt putLong(String name, long value) {
+        tag(NbtCursor.TAG_LONG, name);
+        return write(() -> out.writeLong(value));
+    }
+
+    TestNbt putFloat(String name, float value) {
+        tag(NbtCursor.TAG_FLOAT, name);
+        return write(() -> out.writeFloat(value));
+    }
+
+    TestNbt putString(String name, String value) {
+        tag(NbtCursor.TAG_STRING, name);
+        return write(() -> out.writeUTF(value));
+    }
+
+    TestNbt putByteArray(String name, byte[] value) {
+        tag(NbtCursor.TAG_BYTE_ARRAY, name);
+        return write(() -> {
+            out.writeInt(value.length);
+            out.write(value);
+        });
+    }
+
+    TestNbt putIntArray(String name, int... values) {
+        tag(NbtCursor.TAG_INT_ARRAY, name);
+        return write(() -> {
+            out.writeInt(values.length);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+        });
+    }
+
+    TestNbt putLongArray(String name, long... values) {
+        tag(NbtCursor.TAG_LONG_ARRAY, name);
+        return write(() -> {
+            out.writeInt(values.length);
+            for (long value : values) {
+                out.writeLong(value);
+            }
+        });
+    }
+
+    /**
+     * Writes an unnamed string, as an element of a list of strings
+     */
+    TestNbt element(String value) {
+        return write(() -> out.writeUTF(value));
+    }
+
+    TestNbt putPos(double x, double y, double z) {
+        beginList("Pos", NbtCursor.TAG_DOUBLE, 3);
+        return write(() -> {
+            out.writeDouble(x);
+            out.writeDouble(y);
+            out.writeDouble(z);
+        });
+    }
+
+    /**
+     * Writes an entity compound as an element of the Entities list, with the tags most entities carry
+     * @param itemId Item shown by an item frame, or null for none
+     * @param legacyCount Whether the item stores its count as a byte, as before 1.20.5
+     */
+    TestNbt entity(String id, double x, double y, double z, String itemId, boolean legacyCount) {
+        putPos(x, y, z);
+        beginList("Motion", NbtCursor.TAG_DOUBLE, 3);
+        write(() -> {
+            out.writeDouble(0.0);
+            out.writeDouble(0.0);
+            out.writeDouble(0.0);
+        });
+        beginList("Rotation", NbtCursor.TAG_FLOAT, 2);
+        write(() -> {
+            out.writeFloat(0.0f);
+            out.writeFloat(90.0f);
+        });
+        putIntArray("UUID", 1, 2, 3, 4);
+        putShort("Fire", -1);
+        putByte("Facing", 2);
+        if (itemId != null) {
+            beginCompound("Item");
+            putString("id", itemId);
+            if (legacyCount) {
+                putByte("Count", 1);
+            } else {
+                putInt("count", 1);
+                beginCompound("components");
+                putString("minecraft:custom_name", "\"Wings\"");
+                end();
+            }
+            end();
+        }
+        putString("id", id);
+        return end();
+    }
+
+    /**
+     * Builds an entity chunk as the game stores it, with the given entities in its Entities list
+     */
+    static byte[] chunk(TestNbt.Entity... entities) {
+        TestNbt nbt = new TestNbt().beginCompound("")
+            .putInt("DataVersion", 4189)
+            .putIntArray("Position", 0, 0)
+            .beginList("Entities", NbtCursor.TAG_COMPOUND, entities.length);
+        for (Entity entity : entities) {
+            nbt.entity(entity.id, entity.x, entity.y, entity.z, entity.itemId, entity.legacyCount);
+        }
+        return nbt.putLong("LastUpdate", 1234L).end().toByteArray();
+    }
+
+    /**
+     * An entity of a chunk built by {@link #chunk}
+     */
+    static final class Entity {
+        final String id;
+        final double x;
+        final double y;
+        final double z;
+        final String itemId;
+        final boolean legacyCount;
+
+        Entity(String id, double x, double y, double z, String itemId, boolean legacyCount) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.itemId = itemId;
+            this.legacyCount = legacyCount;
+        }
+
+        static Entity frame(double x, double y, double z, String itemId) {
+            return new Entity("minecraft:item_frame", x, y, z, itemId, false);
+        }
+
+        static Entity boat(double x, double y, double z) {
+            return new Entity("minecraft:oak_boat", x, y, z, null, false);
+        }
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Wraps chunks into an entities region file: the location table, the timestamps, then each chunk
+     * zlib-compressed and padded to whole 4 KiB sectors
+     * @param chunks Uncompressed chunk NBT by slot (local x + local z * 32), null for absent chunks
+     */
+    static byte[] regionFile(byte[][] chunks) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int[] locations = new int[1024];
+        int sector = 2;
+        for (int slot = 0; slot < chunks.length; slot++) {
+            if (chunks[slot] == null) {
+                continue;
+            }
+            Deflater deflater = new Deflater();
+            deflater.setInput(chunks[slot]);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            deflater.end();
+
+            byte[] data = compressed.toByteArray();
+            int sectors = (data.length + 5 + 4095) / 4096;
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(sectors * 4096);
+            DataOutputStream chunkOut = new DataOutputStream(chunk);
+            try {
+                chunkOut.writeInt(data.length + 1);
+                chunkOut.writeByte(2);
+                chunkOut.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            body.write(chunk.toByteArray(), 0, chunk.size());
+            body.write(new byte[sectors * 4096 - chunk.size()], 0, sectors * 4096 - chunk.size());
+            locations[slot] = sector << 8 | sectors;
+            sector += sectors;
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream fileOut = new DataOutputStream(file);
+        try {
+            for (int location : locations) {
+                fileOut.writeInt(location);
+            }
+            fileOut.write(new byte[4096]);
+            body.writeTo(fileOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    private TestNbt tag(int type, String name) {
+        return write(() -> {
+            out.writeByte(type);
+            out.writeUTF(name);
+        });
+    }
+
+    private TestNbt write(Write write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.minecraftplugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimedKeyTableTest {
+
+    private static long[] drained(TimedKeyTable table, long tick) {
+        TimedKeyTable.Due due = new TimedKeyTable.Due();
+        table.drain(tick, due);
+        long[] keys = new long[due.size];
+        System.arraycopy(due.keys, 0, keys, 0, due.size);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    @Test
+    void scheduleReportsAddedPresentAndFull() {
+        TimedKeyTable table = new TimedKeyTable(2, 16, false);
+        assertEquals(1, table.schedule(1L, null, 5L));
+        assertEquals(0, table.schedule(1L, null, 5L));
+        assertEquals(1, table.schedule(2L, null, 5L));
+        assertEquals(-1, table.schedule(3L, null, 5L));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void removeKeepsProbeSequencesIntact() {
+        // A small table with many keys forces long probe runs, so the backward shift is exercised
+        TimedKeyTable table = new TimedKeyTable(64, 16, false);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(200) - 100;
+            if (random.nextBoolean() && expected.size() < 64) {
+                table.schedule(key, null, 1L);
+                expected.add(key);
+            } else {
+                assertEquals(expected.remove(key), table.remove(key));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        for (long key = -100; key < 100; key++) {
+            assertEquals(expected.contains(key), table.contains(key), "key " + key);
+        }
+    }
+
+    @Test
+    void drainTakesOnlyTheEntriesDueOnTheTick() {
+        TimedKeyTable table = new TimedKeyTable(16, 16, false);
+        table.schedule(10L, null, 3L);
+        table.schedule(11L, null, 3L);
+        table.schedule(12L, null, 5L);
+
+        assertArrayEquals(new long[0], drained(table, 1L));
+        assertArrayEquals(new long[0], drained(table, 2L));
+        assertArrayEquals(new long[] {10L, 11L}, drained(table, 3L));
+        assertArrayEquals(new long[0], drained(table, 4L));
+        assertArrayEquals(new long[] {12L}, drained(table, 5L));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void rescheduleMovesToTheLaterTickOnly() {
+        TimedKeyTable table = new TimedKeyTable(16, 16, false);
+        table.schedule(7L, null, 3L);
+        assertEquals(0, table.schedule(7L, null, 6L));
+        assertEquals(0, table.schedule(7L, null, 4L));
+
+        // The stale wheel entries at ticks 3 and 4 must not take the key early
+        for (long tick = 1; tick < 6; tick++) {
+            assertArrayEquals(new long[0], drained(table, tick), "tick " + tick);
+        }
+        assertArrayEquals(new long[] {7L}, drained(table, 6L));
+    }
+
+    @Test
+    void wheelWrapsAroundWithoutTakingLaterEntries() {
+        TimedKeyTable table = new TimedKeyTable(16, 8, false);
+        for (long tick = 1; tick <= 5; tick++) {
+            drained(table, tick);
+        }
+        // Due on tick 12, in the same slot as tick 4 of the next turn
+        table.schedule(1L, null, 12L);
+        for (long tick = 6; tick < 12; tick++) {
+            assertArrayEquals(new long[0], drained(table, tick), "tick " + tick);
+        }
+        assertArrayEquals(new long[] {1L}, drained(table, 12L));
+    }
+
+    @Test
+    void removedKeysAreNotDrained() {
+        TimedKeyTable table = new TimedKeyTable(16, 16, false);
+        table.schedule(1L, null, 2L);
+        table.schedule(2L, null, 2L);
+        assertTrue(table.remove(1L));
+        assertFalse(table.remove(1L));
+        assertArrayEquals(new long[] {2L}, drained(table, 2L));
+    }
+
+    @Test
+    void drainReturnsTheLatestValues() {
+        TimedKeyTable table = new TimedKeyTable(16, 16, true);
+        table.schedule(1L, "first", 2L);
+        table.schedule(1L, "second", 2L);
+        TimedKeyTable.Due due = new TimedKeyTable.Due();
+        table.drain(2L, due);
+        assertEquals(1, due.size);
+        assertEquals("second", due.values[0]);
+    }
+
+    @Test
+    void resizeKeepsTheEntriesThatFit() {
+        TimedKeyTable table = new TimedKeyTable(100, 16, true);
+        Map<Long, String> values = new HashMap<>();
+        for (long key = 0; key < 50; key++) {
+            table.schedule(key, "v" + key, 3L);
+            values.put(key, "v" + key);
+        }
+        table.resize(200);
+        assertEquals(50, table.size());
+        table.resize(10);
+        assertEquals(10, table.size());
+        assertEquals(-1, table.schedule(1000L, null, 3L));
+
+        TimedKeyTable.Due due = new TimedKeyTable.Due();
+        table.drain(3L, due);
+        assertEquals(10, due.size);
+        for (int i = 0; i < due.size; i++) {
+            assertEquals(values.get(due.keys[i]), due.values[i]);
+        }
+    }
+}